@@ -1,6 +1,7 @@
 package com.sparkweb.binding;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -12,6 +13,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.sparkweb.exception.UnexpectedException;
+import com.sparkweb.reflect.PropertyAccess;
 
 /**
  * Parameters map to POJO binder.
@@ -33,12 +35,17 @@ public class BeanWrapper
 
         registerSetters(forClass);
         registerFields(forClass);
+        registerAccess(forClass);
     }
 
     public Collection<Property> getWrappers() {
         return wrappers.values();
     }
 
+    public Property getProperty(String name) {
+        return wrappers.get(name);
+    }
+
     public void set(String name, Object instance, Object value) {
         for (Property prop : wrappers.values()) {
             if (name.equals(prop.name)) {
@@ -102,6 +109,21 @@ public class BeanWrapper
         }
     }
 
+    private void registerAccess(Class<?> clazz) {
+        PropertyAccess access;
+        try {
+            access = PropertyAccess.get(clazz);
+        } catch (RuntimeException e) {
+            // the properties of this class are set through reflection
+            return;
+        } catch (LinkageError e) {
+            return;
+        }
+        for (Property prop : wrappers.values()) {
+            prop.setAccess(access);
+        }
+    }
+
     public static class Property {
 
         private Annotation[] annotations;
@@ -110,10 +132,20 @@ public class BeanWrapper
         private Class<?> type;
         private Type genericType;
         private String name;
+        // the key path of the property's parameter node, split once
+        private String[] path;
         private String[] profiles;
+        // the generated accessor, null when the property is set through reflection
+        private PropertyAccess access;
+        private int index = -1;
+        // the type of the values the accessor accepts, primitives boxed
+        private Class<?> valueType;
+        // no @As or @NoBinding on the property
+        private boolean plain = true;
 
         Property(String propertyName, Method setterMethod) {
             name = propertyName;
+            path = ParamNode.splitKey(name);
             setter = setterMethod;
             type = setter.getParameterTypes()[0];
             annotations = setter.getAnnotations();
@@ -125,6 +157,7 @@ public class BeanWrapper
             this.field = field;
             this.field.setAccessible(true);
             name = field.getName();
+            path = ParamNode.splitKey(name);
             type = field.getType();
             annotations = field.getAnnotations();
             genericType = field.getGenericType();
@@ -137,14 +170,37 @@ public class BeanWrapper
                     if (annotation.annotationType().equals(NoBinding.class)) {
                         NoBinding as = ((NoBinding) annotation);
                         profiles = as.value();
+                        plain = false;
+                    } else if (annotation.annotationType().equals(As.class)) {
+                        plain = false;
                     }
                 }
             }
         }
 
+        void setAccess(PropertyAccess propertyAccess) {
+            int i = propertyAccess.getIndex(setter != null ? setter : field);
+            if (i >= 0) {
+                access = propertyAccess;
+                index = i;
+                valueType = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0).getClass() : type;
+            }
+        }
+
+        /**
+         * Whether a primitive value can be set with the typed setters without boxing:
+         * the property has a generated accessor, a primitive type other than char and no binding annotation.
+         */
+        boolean isDirect() {
+            return access != null && plain && type.isPrimitive() && type != char.class;
+        }
+
         public void setValue(Object instance, Object value) {
             try {
-                if (setter != null) {
+                // widening conversions (an Integer for a long property...) are left to reflection
+                if (access != null && (value == null ? !type.isPrimitive() : valueType.isInstance(value))) {
+                    access.set(instance, index, value);
+                } else if (setter != null) {
                     setter.invoke(instance, value);
                     return;
                 } else {
@@ -156,10 +212,70 @@ public class BeanWrapper
             }
         }
 
+        void setBoolean(Object instance, boolean value) {
+            try {
+                access.setBoolean(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
+        void setByte(Object instance, byte value) {
+            try {
+                access.setByte(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
+        void setShort(Object instance, short value) {
+            try {
+                access.setShort(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
+        void setInt(Object instance, int value) {
+            try {
+                access.setInt(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
+        void setLong(Object instance, long value) {
+            try {
+                access.setLong(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
+        void setFloat(Object instance, float value) {
+            try {
+                access.setFloat(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
+        void setDouble(Object instance, double value) {
+            try {
+                access.setDouble(instance, index, value);
+            } catch (Exception ex) {
+                throw new UnexpectedException(ex);
+            }
+        }
+
         String getName() {
             return name;
         }
 
+        String[] getPath() {
+            return path;
+        }
+
         Class<?> getType() {
             return type;
         }
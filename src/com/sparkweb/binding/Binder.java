@@ -4,10 +4,12 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
@@ -17,14 +19,20 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.joda.time.DateTime;
 
 import com.sparkweb.binding.types.DateBinder;
 import com.sparkweb.binding.types.DateTimeBinder;
 import com.sparkweb.binding.types.LocaleBinder;
+import com.sparkweb.reflect.ConstructorAccess;
+import com.sparkweb.util.NumberParser;
 
 /**
  * The binder try to convert String values to Java objects.
@@ -35,9 +43,14 @@ public abstract class Binder
     private final static Object DIRECTBINDING_NO_RESULT = new Object();
     public final static Object NO_BINDING = new Object();
 
-    static final Map<Class<?>, TypeBinder<?>> supportedTypes = new HashMap<Class<?>, TypeBinder<?>>();
+    // read without locks on every request, registered binders may be added at any time
+    static final Map<Class<?>, TypeBinder<?>> supportedTypes = new ConcurrentHashMap<Class<?>, TypeBinder<?>>();
 
-    static final Map<Class<?>, BeanWrapper> beanwrappers = new HashMap<Class<?>, BeanWrapper>(100);
+    // one wrapper per bean class, read without locks on every request
+    static final ConcurrentMap<Class<?>, BeanWrapper> beanwrappers = new ConcurrentHashMap<Class<?>, BeanWrapper>();
+
+    // no-arg constructors of the bound beans, collections, maps and @As binders
+    static final ConcurrentMap<Class<?>, BeanConstructor> constructors = new ConcurrentHashMap<Class<?>, BeanConstructor>();
     
     
     // TODO: something a bit more dynamic? The As annotation allows you to inject your own binder
@@ -53,11 +66,76 @@ public abstract class Binder
     }
 
     static BeanWrapper getBeanWrapper(Class<?> clazz) {
-        if (!beanwrappers.containsKey(clazz)) {
-            BeanWrapper beanwrapper = new BeanWrapper(clazz);
-            beanwrappers.put(clazz, beanwrapper);
+        BeanWrapper beanwrapper = beanwrappers.get(clazz);
+        if (beanwrapper == null) {
+            // two threads may build the same wrapper, only the first one is kept
+            beanwrapper = new BeanWrapper(clazz);
+            BeanWrapper existing = beanwrappers.putIfAbsent(clazz, beanwrapper);
+            if (existing != null) {
+                beanwrapper = existing;
+            }
+        }
+        return beanwrapper;
+    }
+
+    /**
+     * Builds the wrappers of a bean type and of the beans nested in its properties, so that
+     * the first requests binding it do not pay for it. Types which are not beans are ignored.
+     */
+    public static void prepare(Class<?> clazz, Type type) {
+        prepare(clazz, type, new HashSet<Class<?>>());
+    }
+
+    private static void prepare(Class<?> clazz, Type type, Set<Class<?>> prepared) {
+        if (clazz.isArray()) {
+            prepare(clazz.getComponentType(), clazz.getComponentType(), prepared);
+            return;
+        }
+
+        if (Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz)) {
+            if (type instanceof ParameterizedType) {
+                for (Type argType : ((ParameterizedType) type).getActualTypeArguments()) {
+                    Type rawType = argType instanceof ParameterizedType ? ((ParameterizedType) argType).getRawType() : argType;
+                    if (rawType instanceof Class) {
+                        prepare((Class<?>) rawType, argType, prepared);
+                    }
+                }
+            }
+            return;
+        }
+
+        if (!isBean(clazz) || !prepared.add(clazz)) {
+            return;
+        }
+
+        BeanWrapper bw;
+        try {
+            bw = getBeanWrapper(clazz);
+        } catch (RuntimeException e) {
+            // will fail again when it is bound
+            return;
+        }
+        for (BeanWrapper.Property prop : bw.getWrappers()) {
+            prepare(prop.getType(), prop.getGenericType(), prepared);
+        }
+    }
+
+    private static boolean isBean(Class<?> clazz) {
+        if (clazz.isPrimitive() || clazz.isInterface() || clazz.isEnum() || Modifier.isAbstract(clazz.getModifiers())) {
+            return false;
+        }
+
+        String name = clazz.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.")) {
+            return false;
+        }
+
+        for (Class<?> c : supportedTypes.keySet()) {
+            if (c.isAssignableFrom(clazz)) {
+                return false;
+            }
         }
-        return beanwrappers.get(clazz);
+        return true;
     }
 
     public static class MethodAndParamInfo {
@@ -77,10 +155,24 @@ public abstract class Binder
     }
     
     public static Object bind(Class<?> beanClass, String alias, Map<String, String[]> params) throws Exception {
-		Constructor<?> constructor = beanClass.getDeclaredConstructor();
-		constructor.setAccessible(true);
-		
-        return bind(constructor.newInstance(), alias, params);
+        return bind(newInstance(beanClass), alias, params);
+    }
+
+    /**
+     * Creates an instance with the no-arg constructor of the class, through a generated ConstructorAccess
+     * when the constructor can be reached from it, through reflection otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T newInstance(Class<T> clazz) throws Exception {
+        BeanConstructor constructor = constructors.get(clazz);
+        if (constructor == null) {
+            constructor = new BeanConstructor(clazz);
+            BeanConstructor existing = constructors.putIfAbsent(clazz, constructor);
+            if (existing != null) {
+                constructor = existing;
+            }
+        }
+        return (T) constructor.newInstance();
     }
     
     public static Object bind(Object beanInstance, Map<String, String[]> params) {
@@ -255,6 +347,13 @@ public abstract class Binder
                 }
             }
 
+            if (componentType.isPrimitive() && !supportedTypes.containsKey(componentType)) {
+                Object primitiveArray = bindPrimitiveArray(componentType, values);
+                if (primitiveArray != null) {
+                    return primitiveArray;
+                }
+            }
+
             size = values.length;
             array = Array.newInstance(componentType, size);
             for (int i = 0; i < size; i++) {
@@ -297,8 +396,56 @@ public abstract class Binder
         return array;
     }
 
+    /**
+     * Fills int[], long[] and double[] directly, with the same conversions as internalDirectBind.
+     * Bad items are left out. Returns null for the other component types.
+     */
+    private static Object bindPrimitiveArray(Class<?> componentType, String[] values) {
+        int size = 0;
+        if (componentType == int.class) {
+            int[] array = new int[values.length];
+            for (String value : values) {
+                try {
+                    array[size] = isNullOrEmpty(value) ? 0 : NumberParser.parseInt(value, 0, integerPartEnd(value));
+                    size++;
+                } catch (NumberFormatException e) {
+                    // bad item..
+                }
+            }
+            return size == array.length ? array : Arrays.copyOf(array, size);
+        }
+
+        if (componentType == long.class) {
+            long[] array = new long[values.length];
+            for (String value : values) {
+                try {
+                    array[size] = isNullOrEmpty(value) ? 0l : NumberParser.parseLong(value, 0, integerPartEnd(value));
+                    size++;
+                } catch (NumberFormatException e) {
+                    // bad item..
+                }
+            }
+            return size == array.length ? array : Arrays.copyOf(array, size);
+        }
+
+        if (componentType == double.class) {
+            double[] array = new double[values.length];
+            for (String value : values) {
+                try {
+                    array[size] = isNullOrEmpty(value) ? 0d : Double.parseDouble(value);
+                    size++;
+                } catch (NumberFormatException e) {
+                    // bad item..
+                }
+            }
+            return size == array.length ? array : Arrays.copyOf(array, size);
+        }
+
+        return null;
+    }
+
     private static Object internalBindBean(Class<?> clazz, ParamNode paramNode, BindingAnnotations bindingAnnotations) throws Exception {
-        Object bean = clazz.newInstance();
+        Object bean = newInstance(clazz);
         internalBindBean(paramNode, bean, bindingAnnotations);
         return bean;
     }
@@ -306,31 +453,87 @@ public abstract class Binder
     private static void internalBindBean(ParamNode paramNode, Object bean, BindingAnnotations bindingAnnotations) throws Exception {
 
         BeanWrapper bw = getBeanWrapper(bean.getClass());
-        for (BeanWrapper.Property prop : bw.getWrappers()) {
-            ParamNode propParamNode = paramNode.getChild(prop.getName());
-            if (propParamNode != null) {
-                // Create new ParamsContext for this property
-                Annotation[] annotations = null;
-                // first we try with annotations resolved from property
-                annotations = prop.getAnnotations();
-                BindingAnnotations propBindingAnnotations = new BindingAnnotations(annotations, bindingAnnotations.getProfiles());
-                Object value = internalBind(propParamNode, prop.getType(), prop.getGenericType(), propBindingAnnotations);
-                if (value != MISSING) {
-                    if (value != NO_BINDING) {
-                        prop.setValue(bean, value);
-                    }
-                } else {
-                    // retry without annotations resolved from property, but use input-annotations instead..
-                    // This is actually necessary to parse Fixture (iso) dates
-                    value = internalBind(propParamNode, prop.getType(), prop.getGenericType(), bindingAnnotations);
-                    if (value != NO_BINDING && value != MISSING) {
-                        prop.setValue(bean, value);
-                    }
+        Collection<ParamNode> children = paramNode.getAllChildren();
+        if (children.size() < bw.getWrappers().size()) {
+            // fewer params than properties: look the properties up by the param names
+            for (ParamNode propParamNode : children) {
+                BeanWrapper.Property prop = bw.getProperty(propParamNode.getName());
+                if (prop != null) {
+                    bindProperty(prop, propParamNode, bean, bindingAnnotations);
+                }
+            }
+        } else {
+            for (BeanWrapper.Property prop : bw.getWrappers()) {
+                ParamNode propParamNode = paramNode.getChild(prop.getPath());
+                if (propParamNode != null) {
+                    bindProperty(prop, propParamNode, bean, bindingAnnotations);
                 }
             }
         }
     }
 
+    private static void bindProperty(BeanWrapper.Property prop, ParamNode propParamNode, Object bean, BindingAnnotations bindingAnnotations) throws Exception {
+        if (prop.isDirect() && !supportedTypes.containsKey(prop.getType()) && bindPrimitive(prop, propParamNode, bean)) {
+            return;
+        }
+
+        // Create new ParamsContext for this property
+        Annotation[] annotations = null;
+        // first we try with annotations resolved from property
+        annotations = prop.getAnnotations();
+        BindingAnnotations propBindingAnnotations = new BindingAnnotations(annotations, bindingAnnotations.getProfiles());
+        Object value = internalBind(propParamNode, prop.getType(), prop.getGenericType(), propBindingAnnotations);
+        if (value != MISSING) {
+            if (value != NO_BINDING) {
+                prop.setValue(bean, value);
+            }
+        } else {
+            // retry without annotations resolved from property, but use input-annotations instead..
+            // This is actually necessary to parse Fixture (iso) dates
+            value = internalBind(propParamNode, prop.getType(), prop.getGenericType(), bindingAnnotations);
+            if (value != NO_BINDING && value != MISSING) {
+                prop.setValue(bean, value);
+            }
+        }
+    }
+
+    /**
+     * Binds the value of a primitive property without boxing it, with the same conversions as internalDirectBind.
+     * Returns false when the value has to go through internalBind (no value, or a value which does not parse).
+     */
+    private static boolean bindPrimitive(BeanWrapper.Property prop, ParamNode propParamNode, Object bean) {
+        String[] values = propParamNode.getValues();
+        if (values == null) {
+            return false;
+        }
+
+        String value = values[0];
+        boolean nullOrEmpty = isNullOrEmpty(value);
+        Class<?> clazz = prop.getType();
+        try {
+            if (clazz == int.class) {
+                prop.setInt(bean, nullOrEmpty ? 0 : NumberParser.parseInt(value, 0, integerPartEnd(value)));
+            } else if (clazz == long.class) {
+                prop.setLong(bean, nullOrEmpty ? 0l : NumberParser.parseLong(value, 0, integerPartEnd(value)));
+            } else if (clazz == boolean.class) {
+                prop.setBoolean(bean, nullOrEmpty ? false : parseBoolean(value));
+            } else if (clazz == double.class) {
+                prop.setDouble(bean, nullOrEmpty ? 0d : Double.parseDouble(value));
+            } else if (clazz == float.class) {
+                prop.setFloat(bean, nullOrEmpty ? 0f : Float.parseFloat(value));
+            } else if (clazz == short.class) {
+                prop.setShort(bean, nullOrEmpty ? (short) 0 : parseShort(value));
+            } else if (clazz == byte.class) {
+                prop.setByte(bean, nullOrEmpty ? (byte) 0 : parseByte(value));
+            } else {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private static Object bindEnum(Class<?> clazz, ParamNode paramNode) throws Exception {
         if (paramNode.getValues() == null) {
@@ -346,6 +549,7 @@ public abstract class Binder
         return Enum.valueOf((Class<? extends Enum>) clazz, value);
     }
 
+    @SuppressWarnings("unchecked")
     private static Object bindMap(Class<?> clazz, Type type, ParamNode paramNode, BindingAnnotations bindingAnnotations) throws Exception {
         Class<?> keyClass = String.class;
         Class<?> valueClass = String.class;
@@ -355,7 +559,12 @@ public abstract class Binder
             valueClass = (Class<?>) ((ParameterizedType) type).getActualTypeArguments()[1];
         }
 
-        Map<Object, Object> r = new HashMap<Object, Object>();
+        Map<Object, Object> r;
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            r = SortedMap.class.isAssignableFrom(clazz) ? new TreeMap<Object, Object>() : new HashMap<Object, Object>();
+        } else {
+            r = (Map<Object, Object>) newInstance(clazz);
+        }
 
         for (ParamNode child : paramNode.getAllChildren()) {
             try {
@@ -418,7 +627,7 @@ public abstract class Binder
                 }
             }
 
-            Collection l = (Collection) clazz.newInstance();
+            Collection l = (Collection) newInstance(clazz);
             boolean hasMissing = false;
             for (int i = 0; i < values.length; i++) {
                 try {
@@ -438,7 +647,7 @@ public abstract class Binder
             return l;  
         }
 
-        Collection r = (Collection) clazz.newInstance();
+        Collection r = (Collection) newInstance(clazz);
 
         if (List.class.isAssignableFrom(clazz)) {
             // Must add items at position resolved from each child's key
@@ -514,7 +723,7 @@ public abstract class Binder
     // If internalDirectBind was not able to bind it, it returns a special variable instance: DIRECTBIND_MISSING
     // Needs this because sometimes we need to know if no value was returned..
     private static Object internalDirectBind(String name, Annotation[] annotations, String value, Class<?> clazz, Type type) throws Exception {
-        boolean nullOrEmpty = value == null || value.trim().length() == 0;
+        boolean nullOrEmpty = isNullOrEmpty(value);
 
         if (annotations != null) {
             for (Annotation annotation : annotations) {
@@ -522,7 +731,7 @@ public abstract class Binder
                     Class<? extends TypeBinder<?>> toInstanciate = ((As) annotation).binder();
                     if (!(toInstanciate.equals(As.DEFAULT.class))) {
                         // Instantiate the binder
-                        TypeBinder<?> myInstance = toInstanciate.newInstance();
+                        TypeBinder<?> myInstance = newInstance(toInstanciate);
                         return myInstance.bind(name, annotations, value, clazz, type);
                     }
                 }
@@ -530,9 +739,9 @@ public abstract class Binder
         }
 
         // custom types
-        for (Class<?> c : supportedTypes.keySet()) {
-            if (c.isAssignableFrom(clazz)) {
-                return supportedTypes.get(c).bind(name, annotations, value, clazz, type);
+        for (Map.Entry<Class<?>, TypeBinder<?>> supportedType : supportedTypes.entrySet()) {
+            if (supportedType.getKey().isAssignableFrom(clazz)) {
+                return supportedType.getValue().bind(name, annotations, value, clazz, type);
             }
         }
 
@@ -557,7 +766,7 @@ public abstract class Binder
                 return clazz.isPrimitive() ? 0 : null;
             }
 
-            return Integer.parseInt(value.contains(".") ? value.substring(0, value.indexOf(".")) : value);
+            return NumberParser.parseInt(value, 0, integerPartEnd(value));
         }
 
         // long or Long binding
@@ -566,7 +775,7 @@ public abstract class Binder
                 return clazz.isPrimitive() ? 0l : null;
             }
 
-            return Long.parseLong(value.contains(".") ? value.substring(0, value.indexOf(".")) : value);
+            return NumberParser.parseLong(value, 0, integerPartEnd(value));
         }
 
         // byte or Byte binding
@@ -575,7 +784,7 @@ public abstract class Binder
                 return clazz.isPrimitive() ? (byte) 0 : null;
             }
 
-            return Byte.parseByte(value.contains(".") ? value.substring(0, value.indexOf(".")) : value);
+            return parseByte(value);
         }
 
         // short or Short binding
@@ -584,7 +793,7 @@ public abstract class Binder
                 return clazz.isPrimitive() ? (short) 0 : null;
             }
 
-            return Short.parseShort(value.contains(".") ? value.substring(0, value.indexOf(".")) : value);
+            return parseShort(value);
         }
 
         // float or Float binding
@@ -616,15 +825,88 @@ public abstract class Binder
                 return clazz.isPrimitive() ? false : null;
             }
 
-            if (value.equals("1") || value.toLowerCase().equals("on") || value.toLowerCase().equals("yes")) {
-                return true;
-            }
-
-            return Boolean.parseBoolean(value);
+            return parseBoolean(value);
         }
 
         return DIRECTBINDING_NO_RESULT;
     }
 
+    private static boolean isNullOrEmpty(String value) {
+        return value == null || value.trim().length() == 0;
+    }
+
+    // "12.5" binds to 12 for the integer types
+    private static int integerPartEnd(String value) {
+        int dot = value.indexOf('.');
+        return dot < 0 ? value.length() : dot;
+    }
+
+    private static byte parseByte(String value) {
+        int i = NumberParser.parseInt(value, 0, integerPartEnd(value));
+        if (i < Byte.MIN_VALUE || i > Byte.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range. Value:\"" + value + "\"");
+        }
+        return (byte) i;
+    }
+
+    private static short parseShort(String value) {
+        int i = NumberParser.parseInt(value, 0, integerPartEnd(value));
+        if (i < Short.MIN_VALUE || i > Short.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range. Value:\"" + value + "\"");
+        }
+        return (short) i;
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (value.equals("1") || value.toLowerCase().equals("on") || value.toLowerCase().equals("yes")) {
+            return true;
+        }
+
+        return Boolean.parseBoolean(value);
+    }
 
+    /**
+     * The no-arg constructor of a class. Non-public and abstract classes, private constructors, constructors
+     * not reachable from the generated class, and inner classes (which have no no-arg constructor) go
+     * through reflection.
+     */
+    static final class BeanConstructor {
+        private final Class<?> type;
+        private ConstructorAccess<?> access;
+        private Constructor<?> constructor;
+
+        BeanConstructor(Class<?> type) {
+            this.type = type;
+            int modifiers = type.getModifiers();
+            if (Modifier.isPublic(modifiers) && !Modifier.isAbstract(modifiers) && !type.isArray() && !type.isPrimitive()) {
+                try {
+                    ConstructorAccess<?> constructorAccess = ConstructorAccess.get(type);
+                    if (!constructorAccess.isNonStaticMemberClass()) {
+                        access = constructorAccess;
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    // use reflection
+                } catch (LinkageError e) {
+                    // use reflection
+                }
+            }
+            try {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (Exception e) {
+                constructor = null;
+            }
+        }
+
+        Object newInstance() throws Exception {
+            if (access != null) {
+                return access.newInstance();
+            }
+            if (constructor == null) {
+                throw new NoSuchMethodException(type.getName() + ".<init>()");
+            }
+            return constructor.newInstance();
+        }
+    }
 }
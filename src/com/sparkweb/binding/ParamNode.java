@@ -1,10 +1,12 @@
 package com.sparkweb.binding;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ParamNode 
 {
@@ -13,14 +15,16 @@ public class ParamNode
     private String[] values = null;
     private String originalKey;
 
-    // splits a string on one-ore-more instances of .[]
+    // keys are split on one-ore-more instances of .[]
     // this works so that all the following strings (param naming syntaxes)
     // is resolved into the same structural hierarchy:
     // a.b.c=12
     // a[b].c=12
     // a[b][c]=12
     // a.b[c]=12
-    private final static String keyPartDelimiterRegexpString = "[\\.\\[\\]]+";
+    // the split key paths are cached by the raw key, the cache is cleared when it is full
+    private final static int MAX_CACHED_KEYS = 4096;
+    private final static Map<String, String[]> keyPathCache = new ConcurrentHashMap<String, String[]>(256);
 
     public ParamNode(String name) {
         this.name = name;
@@ -56,7 +60,7 @@ public class ParamNode
     }
 
     public ParamNode getChild(String name, boolean returnEmptyChildIfNotFound) {
-        ParamNode child = getChild( name.split(keyPartDelimiterRegexpString));
+        ParamNode child = getChild( keyPath(name));
         if (child == null && returnEmptyChildIfNotFound) {
             child = new ParamNode(name);
         }
@@ -99,7 +103,10 @@ public class ParamNode
         }
     }
 
-    private ParamNode getChild(String[] nestedNames) {
+    /**
+     * Looks up a nested child by an already split key path, see {@link #keyPath(String)}.
+     */
+    public ParamNode getChild(String[] nestedNames) {
         ParamNode currentChildNode = this;
         for (int i=0; i<nestedNames.length; i++) {
             currentChildNode = currentChildNode._children.get(nestedNames[i]);
@@ -142,8 +149,8 @@ public class ParamNode
 
             ParamNode currentParent = root;
 
-            for ( String name : key.split(keyPartDelimiterRegexpString)) {
-                ParamNode paramNode = currentParent.getChild( name );
+            for ( String name : keyPath(key)) {
+                ParamNode paramNode = currentParent._children.get( name );
                 if (paramNode ==null) {
                     // first time we see this node - create it and add it to parent
                     paramNode = new ParamNode(name);
@@ -159,6 +166,60 @@ public class ParamNode
         return root;
     }
     
+    /**
+     * Splits a parameter key into its parts, the same as <code>key.split("[\\.\\[\\]]+")</code>
+     * but without a regexp. The result is cached and shared: it must not be modified.
+     */
+    public static String[] keyPath(String key) {
+        String[] path = keyPathCache.get(key);
+        if (path == null) {
+            path = splitKey(key);
+            if (keyPathCache.size() >= MAX_CACHED_KEYS) {
+                keyPathCache.clear();
+            }
+            keyPathCache.put(key, path);
+        }
+        return path;
+    }
+
+    static String[] splitKey(String key) {
+        int len = key.length();
+        int i = 0;
+        while (i < len && !isKeyDelimiter(key.charAt(i))) {
+            i++;
+        }
+        if (i == len) {
+            return new String[] {key};
+        }
+
+        List<String> parts = new ArrayList<String>(4);
+        int start = 0;
+        while (i < len) {
+            // i is at the start of a run of delimiters
+            parts.add(key.substring(start, i));
+            while (i < len && isKeyDelimiter(key.charAt(i))) {
+                i++;
+            }
+            start = i;
+            while (i < len && !isKeyDelimiter(key.charAt(i))) {
+                i++;
+            }
+        }
+        if (start < len) {
+            parts.add(key.substring(start));
+        }
+
+        // like String.split, a key made only of delimiters has no parts
+        if (parts.size() == 1 && parts.get(0).length() == 0) {
+            return new String[0];
+        }
+        return parts.toArray(new String[parts.size()]);
+    }
+
+    private static boolean isKeyDelimiter(char c) {
+        return c == '.' || c == '[' || c == ']';
+    }
+
     private static String join(String[] values, String separator)
     {
     	if(values == null || values.length == 0)
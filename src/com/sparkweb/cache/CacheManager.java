@@ -0,0 +1,207 @@
+package com.sparkweb.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sparkweb.exception.CacheException;
+import com.sparkweb.util.TimeUtils;
+
+/**
+ * 缓存管理器，对 {@link CacheProvider} 的统一访问入口，并记录每个缓存区的命中统计。
+ * <p>
+ * 在 RouteDispatcher 初始化时使用 <code>ExtendedWebSettings.cacheProvider()</code> 进行初始化。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class CacheManager
+{
+	private static final Log								log				= LogFactory.getLog(CacheManager.class);
+
+	/**
+	 * 没有指定缓存区时使用的默认缓存区
+	 */
+	public static final String								DEFAULT_REGION	= "default";
+
+	private static volatile CacheProvider					provider		= null;
+
+	private static final ConcurrentMap<String, CacheStats>	stats			= new ConcurrentHashMap<String, CacheStats>(16);
+
+	private CacheManager() {
+	}
+
+	/**
+	 * 初始化缓存系统
+	 *
+	 * @param cacheProvider 缓存实现
+	 */
+	public static synchronized void init(CacheProvider cacheProvider)
+	{
+		if(cacheProvider == null)
+		{
+			throw new CacheException("The CacheProvider must not be null!");
+		}
+
+		if(provider != null)
+		{
+			provider.stop();
+		}
+
+		cacheProvider.init();
+		provider = cacheProvider;
+		stats.clear();
+
+		log.info("Cache system initialized with " + cacheProvider.getClass().getName());
+	}
+
+	/**
+	 * 缓存系统是否已经初始化
+	 */
+	public static boolean isInitialized()
+	{
+		return provider != null;
+	}
+
+	public static Object get(String key)
+	{
+		return get(DEFAULT_REGION, key);
+	}
+
+	/**
+	 * 从缓存区中获取缓存数据，并记录命中统计
+	 *
+	 * @param region 缓存区，为空时使用默认缓存区
+	 * @param key 缓存数据的唯一标识
+	 * @return
+	 */
+	public static Object get(String region, String key)
+	{
+		region = regionName(region);
+
+		Object value = provider().get(region, key);
+		if(value != null)
+		{
+			stats(region).recordHit();
+		}
+		else
+		{
+			stats(region).recordMiss();
+		}
+
+		return value;
+	}
+
+	public static void set(String key, Object value, String expiration)
+	{
+		set(DEFAULT_REGION, key, value, expiration);
+	}
+
+	/**
+	 * 将数据放入缓存区中
+	 *
+	 * @param region 缓存区，为空时使用默认缓存区
+	 * @param key 缓存数据的唯一标识
+	 * @param value 缓存数据
+	 * @param expiration 过期时间，比如：30s、10mn、1h、7d
+	 */
+	public static void set(String region, String key, Object value, String expiration)
+	{
+		set(region, key, value, TimeUtils.parseDuration(expiration));
+	}
+
+	/**
+	 * 将数据放入缓存区中
+	 *
+	 * @param region 缓存区，为空时使用默认缓存区
+	 * @param key 缓存数据的唯一标识
+	 * @param value 缓存数据
+	 * @param expiration 过期时间（秒），小于等于0表示永不过期
+	 */
+	public static void set(String region, String key, Object value, int expiration)
+	{
+		provider().set(regionName(region), key, value, expiration);
+	}
+
+	public static void delete(String key)
+	{
+		delete(DEFAULT_REGION, key);
+	}
+
+	public static void delete(String region, String key)
+	{
+		provider().delete(regionName(region), key);
+	}
+
+	/**
+	 * 清空缓存区
+	 */
+	public static void clear(String region)
+	{
+		provider().clear(regionName(region));
+	}
+
+	/**
+	 * 获取缓存区的命中统计
+	 */
+	public static CacheStats stats(String region)
+	{
+		region = regionName(region);
+
+		CacheStats regionStats = stats.get(region);
+		if(regionStats == null)
+		{
+			regionStats = new CacheStats(region);
+			CacheStats existing = stats.putIfAbsent(region, regionStats);
+			if(existing != null)
+			{
+				regionStats = existing;
+			}
+		}
+
+		return regionStats;
+	}
+
+	/**
+	 * 获取所有缓存区的命中统计，按缓存区名称排序
+	 */
+	public static Map<String, CacheStats> stats()
+	{
+		return Collections.unmodifiableMap(new TreeMap<String, CacheStats>(stats));
+	}
+
+	/**
+	 * 停止缓存系统
+	 */
+	public static synchronized void stop()
+	{
+		if(provider != null)
+		{
+			provider.stop();
+			provider = null;
+		}
+
+		stats.clear();
+	}
+
+	private static CacheProvider provider()
+	{
+		CacheProvider cacheProvider = provider;
+		if(cacheProvider == null)
+		{
+			throw new CacheException("The cache system is not initialized!");
+		}
+
+		return cacheProvider;
+	}
+
+	private static String regionName(String region)
+	{
+		return region == null || region.length() == 0 ? DEFAULT_REGION : region;
+	}
+}
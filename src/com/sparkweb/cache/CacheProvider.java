@@ -0,0 +1,58 @@
+package com.sparkweb.cache;
+
+/**
+ * 缓存实现的扩展接口(SPI) <br>
+ * 可以通过 <code>ExtendedWebSettings.cacheProvider()</code> 提供自定义的实现（比如：基于 Memcached、Redis 的分布式缓存），
+ * 没有提供时默认使用进程内的 {@link LocalCacheProvider}。
+ * <p>
+ * 所有方法都可能被多个请求线程同时调用，实现类必须是线程安全的。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public interface CacheProvider
+{
+	/**
+	 * 初始化缓存，在应用启动时调用一次
+	 */
+	void init();
+
+	/**
+	 * 从缓存区中获取缓存数据
+	 *
+	 * @param region 缓存区
+	 * @param key 缓存数据的唯一标识
+	 * @return 缓存数据，不存在或已经过期时返回 null
+	 */
+	Object get(String region, String key);
+
+	/**
+	 * 将数据放入缓存区中
+	 *
+	 * @param region 缓存区
+	 * @param key 缓存数据的唯一标识
+	 * @param value 缓存数据
+	 * @param expiration 过期时间（秒），小于等于0表示永不过期
+	 */
+	void set(String region, String key, Object value, int expiration);
+
+	/**
+	 * 从缓存区中删除缓存数据
+	 *
+	 * @param region 缓存区
+	 * @param key 缓存数据的唯一标识
+	 */
+	void delete(String region, String key);
+
+	/**
+	 * 清空缓存区
+	 *
+	 * @param region 缓存区
+	 */
+	void clear(String region);
+
+	/**
+	 * 停止缓存并释放资源，在应用关闭时调用一次
+	 */
+	void stop();
+}
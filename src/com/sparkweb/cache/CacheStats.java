@@ -0,0 +1,76 @@
+package com.sparkweb.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存区的命中统计
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class CacheStats
+{
+	private final String		region;
+	private final AtomicLong	hits	= new AtomicLong();
+	private final AtomicLong	misses	= new AtomicLong();
+
+	CacheStats(String region) {
+		this.region = region;
+	}
+
+	void recordHit()
+	{
+		this.hits.incrementAndGet();
+	}
+
+	void recordMiss()
+	{
+		this.misses.incrementAndGet();
+	}
+
+	public String region()
+	{
+		return this.region;
+	}
+
+	/**
+	 * 命中次数
+	 */
+	public long hitCount()
+	{
+		return this.hits.get();
+	}
+
+	/**
+	 * 未命中次数
+	 */
+	public long missCount()
+	{
+		return this.misses.get();
+	}
+
+	/**
+	 * 总的请求次数
+	 */
+	public long requestCount()
+	{
+		return hitCount() + missCount();
+	}
+
+	/**
+	 * 命中率，没有任何请求时返回 1.0
+	 */
+	public double hitRate()
+	{
+		long hitCount = hitCount();
+		long requestCount = hitCount + missCount();
+		return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("CacheStats[region=%s, hits=%d, misses=%d, hitRate=%.4f]", this.region, hitCount(),
+				missCount(), hitRate());
+	}
+}
@@ -0,0 +1,175 @@
+package com.sparkweb.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 默认的进程内缓存实现 <br>
+ * 每个缓存区是一个采用LRU策略、容量有上限的缓存，同时支持按过期时间淘汰；
+ * 不同缓存区之间互不影响，各自独立加锁。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public class LocalCacheProvider implements CacheProvider
+{
+	/**
+	 * 默认每个缓存区最多缓存的数据条数
+	 */
+	public static final int								DEFAULT_MAX_ENTRIES	= 10000;
+
+	private final int									maxEntries;
+
+	private final ConcurrentMap<String, RegionCache>	regions				= new ConcurrentHashMap<String, RegionCache>(16);
+
+	public LocalCacheProvider() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * @param maxEntries 每个缓存区最多缓存的数据条数
+	 */
+	public LocalCacheProvider(int maxEntries) {
+		if(maxEntries <= 0)
+		{
+			throw new IllegalArgumentException("The maxEntries must be greater than 0!");
+		}
+
+		this.maxEntries = maxEntries;
+	}
+
+	public void init()
+	{
+	}
+
+	public Object get(String region, String key)
+	{
+		RegionCache cache = this.regions.get(region);
+		if(cache == null)
+		{
+			return null;
+		}
+
+		synchronized(cache)
+		{
+			CacheEntry entry = cache.get(key);
+			if(entry == null)
+			{
+				return null;
+			}
+
+			if(entry.isExpired(System.currentTimeMillis()))
+			{
+				cache.remove(key);
+				return null;
+			}
+
+			return entry.value;
+		}
+	}
+
+	public void set(String region, String key, Object value, int expiration)
+	{
+		if(value == null)
+		{
+			delete(region, key);
+			return;
+		}
+
+		long expiresAt = expiration > 0 ? System.currentTimeMillis() + expiration * 1000L : Long.MAX_VALUE;
+		RegionCache cache = region(region);
+
+		synchronized(cache)
+		{
+			cache.put(key, new CacheEntry(value, expiresAt));
+		}
+	}
+
+	public void delete(String region, String key)
+	{
+		RegionCache cache = this.regions.get(region);
+		if(cache == null)
+		{
+			return;
+		}
+
+		synchronized(cache)
+		{
+			cache.remove(key);
+		}
+	}
+
+	public void clear(String region)
+	{
+		RegionCache cache = this.regions.get(region);
+		if(cache == null)
+		{
+			return;
+		}
+
+		synchronized(cache)
+		{
+			cache.clear();
+		}
+	}
+
+	public void stop()
+	{
+		this.regions.clear();
+	}
+
+	private RegionCache region(String region)
+	{
+		RegionCache cache = this.regions.get(region);
+		if(cache == null)
+		{
+			cache = new RegionCache(this.maxEntries);
+			RegionCache existing = this.regions.putIfAbsent(region, cache);
+			if(existing != null)
+			{
+				cache = existing;
+			}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * 采用LRU策略的缓存区
+	 */
+	private static final class RegionCache extends LinkedHashMap<String, CacheEntry>
+	{
+		private static final long	serialVersionUID	= 6406386573364125045L;
+
+		private final int			maxEntries;
+
+		RegionCache(int maxEntries) {
+			super(Math.min(maxEntries, 256), 0.75f, true);
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest)
+		{
+			return size() > this.maxEntries;
+		}
+	}
+
+	private static final class CacheEntry
+	{
+		final Object	value;
+		final long		expiresAt;
+
+		CacheEntry(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired(long now)
+		{
+			return now >= this.expiresAt;
+		}
+	}
+}
@@ -73,6 +73,7 @@ class AccessClassLoader extends ClassLoader
 		// These classes come from the classloader that loaded AccessClassLoader.
 		if (name.equals(FieldAccess.class.getName())) return FieldAccess.class;
 		if (name.equals(MethodAccess.class.getName())) return MethodAccess.class;
+		if (name.equals(PropertyAccess.class.getName())) return PropertyAccess.class;
 		if (name.equals(ConstructorAccess.class.getName())) return ConstructorAccess.class;
 		if (name.equals(PublicConstructorAccess.class.getName())) return PublicConstructorAccess.class;
 		// All other classes come from the classloader that loaded the type we are accessing.
@@ -0,0 +1,389 @@
+package com.sparkweb.reflect;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/** Writes the bean properties of a class without reflection: the generated subclass switches on the property index and calls
+ * the setter or puts the field directly, the typed setters (setInt, setLong...) do not box the value.
+ * <p>
+ * The properties are the non-private, non-static setters (setXxx with one parameter, superclass first) followed by the
+ * non-private, non-static, non-final fields of the class and its superclasses. */
+public abstract class PropertyAccess
+{
+	private String[] propertyNames;
+	private Class<?>[] propertyTypes;
+	private Member[] members;
+
+	/** Returns the index of the first property with the specified name. */
+	public int getIndex (String propertyName) {
+		for (int i = 0, n = propertyNames.length; i < n; i++)
+			if (propertyNames[i].equals(propertyName)) return i;
+		throw new IllegalArgumentException("Unable to find non-private property: " + propertyName);
+	}
+
+	/** Returns the index of the property written through the specified setter or field, or -1 if it is not accessible. */
+	public int getIndex (Member member) {
+		for (int i = 0, n = members.length; i < n; i++)
+			if (member.equals(members[i])) return i;
+		return -1;
+	}
+
+	public void set (Object instance, String propertyName, Object value) {
+		set(instance, getIndex(propertyName), value);
+	}
+
+	public String[] getPropertyNames () {
+		return propertyNames;
+	}
+
+	public Class<?>[] getPropertyTypes () {
+		return propertyTypes;
+	}
+
+	/** The setters and fields of the properties, null for the members which are not accessible. */
+	public Member[] getMembers () {
+		return members;
+	}
+
+	public int getPropertyCount () {
+		return propertyTypes.length;
+	}
+
+	abstract public void set (Object instance, int propertyIndex, Object value);
+
+	abstract public void setBoolean (Object instance, int propertyIndex, boolean value);
+
+	abstract public void setByte (Object instance, int propertyIndex, byte value);
+
+	abstract public void setShort (Object instance, int propertyIndex, short value);
+
+	abstract public void setInt (Object instance, int propertyIndex, int value);
+
+	abstract public void setLong (Object instance, int propertyIndex, long value);
+
+	abstract public void setDouble (Object instance, int propertyIndex, double value);
+
+	abstract public void setFloat (Object instance, int propertyIndex, float value);
+
+	abstract public void setChar (Object instance, int propertyIndex, char value);
+
+	static public PropertyAccess get (Class<?> type) {
+		if (type.isInterface() || type.isArray() || type.isPrimitive())
+			throw new IllegalArgumentException("Not a bean class: " + type.getName());
+
+		ArrayList<Member> members = new ArrayList<Member>();
+		addSetters(type, type, members);
+		Class<?> nextClass = type;
+		while (nextClass != Object.class) {
+			Field[] declaredFields = nextClass.getDeclaredFields();
+			for (int i = 0, n = declaredFields.length; i < n; i++) {
+				Field field = declaredFields[i];
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers)) continue;
+				if (Modifier.isPrivate(modifiers)) continue;
+				if (Modifier.isFinal(modifiers)) continue;
+				if (field.isSynthetic()) continue;
+				if (!isAccessible(type, field)) continue;
+				members.add(field);
+			}
+			nextClass = nextClass.getSuperclass();
+		}
+
+		int n = members.size();
+		String[] propertyNames = new String[n];
+		Class<?>[] propertyTypes = new Class<?>[n];
+		for (int i = 0; i < n; i++) {
+			Member member = members.get(i);
+			propertyTypes[i] = valueType(member);
+			if (member instanceof Method) {
+				String name = member.getName();
+				propertyNames[i] = name.substring(3, 4).toLowerCase() + name.substring(4);
+			} else {
+				propertyNames[i] = member.getName();
+			}
+		}
+
+		String className = type.getName();
+		String accessClassName = className + "PropertyAccess";
+		if (accessClassName.startsWith("java.")) accessClassName = "reflectasm." + accessClassName;
+		Class<?> accessClass = null;
+
+		AccessClassLoader loader = AccessClassLoader.get(type);
+		synchronized (loader) {
+			try {
+				accessClass = loader.loadClass(accessClassName);
+			} catch (ClassNotFoundException ignored) {
+				String accessClassNameInternal = accessClassName.replace('.', '/');
+				String classNameInternal = className.replace('.', '/');
+
+				ClassWriter cw = new ClassWriter(0);
+				cw.visit(V1_1, ACC_PUBLIC + ACC_SUPER, accessClassNameInternal, null, "com/sparkweb/reflect/PropertyAccess",
+					null);
+				insertConstructor(cw);
+				insertSet(cw, classNameInternal, members, null);
+				insertSet(cw, classNameInternal, members, Type.BOOLEAN_TYPE);
+				insertSet(cw, classNameInternal, members, Type.BYTE_TYPE);
+				insertSet(cw, classNameInternal, members, Type.SHORT_TYPE);
+				insertSet(cw, classNameInternal, members, Type.INT_TYPE);
+				insertSet(cw, classNameInternal, members, Type.LONG_TYPE);
+				insertSet(cw, classNameInternal, members, Type.DOUBLE_TYPE);
+				insertSet(cw, classNameInternal, members, Type.FLOAT_TYPE);
+				insertSet(cw, classNameInternal, members, Type.CHAR_TYPE);
+				cw.visitEnd();
+				accessClass = loader.defineClass(accessClassName, cw.toByteArray());
+			}
+		}
+		Member[] accessibleMembers = members.toArray(new Member[n]);
+		if (!AccessClassLoader.areInSameRuntimeClassLoader(type, accessClass)) {
+			if (!Modifier.isPublic(type.getModifiers())) {
+				// Throw a Runtime exception here instead of an IllegalAccessError when a property is set
+				throw new RuntimeException(
+					"The class is package-protected, and its PropertyAccess could not be defined in the same class loader: " + type.getName());
+			}
+			// protected and package-protected members are not accessible from another class loader
+			for (int i = 0; i < n; i++)
+				if (!Modifier.isPublic(accessibleMembers[i].getModifiers())) accessibleMembers[i] = null;
+		}
+		try {
+			PropertyAccess access = (PropertyAccess)accessClass.newInstance();
+			access.propertyNames = propertyNames;
+			access.propertyTypes = propertyTypes;
+			access.members = accessibleMembers;
+			return access;
+		} catch (Throwable t) {
+			throw new RuntimeException("Error constructing property access class: " + accessClassName, t);
+		}
+	}
+
+	static private void addSetters (Class<?> type, Class<?> nextClass, ArrayList<Member> members) {
+		if (nextClass == Object.class) return;
+		// superclass first
+		addSetters(type, nextClass.getSuperclass(), members);
+
+		Method[] declaredMethods = nextClass.getDeclaredMethods();
+		for (int i = 0, n = declaredMethods.length; i < n; i++) {
+			Method method = declaredMethods[i];
+			int modifiers = method.getModifiers();
+			if (Modifier.isStatic(modifiers)) continue;
+			if (Modifier.isPrivate(modifiers)) continue;
+			if (Modifier.isNative(modifiers)) continue;
+			if (method.isBridge() || method.isSynthetic()) continue;
+			if (!method.getName().startsWith("set") || method.getName().length() <= 3) continue;
+			if (method.getParameterTypes().length != 1) continue;
+			if (!isAccessible(type, method)) continue;
+			members.add(method);
+		}
+	}
+
+	/** Protected and package-protected members (or value types) of another package can not be accessed from the access class,
+	 * they are left to reflection. */
+	static private boolean isAccessible (Class<?> type, Member member) {
+		Class<?> valueType = valueType(member);
+		while (valueType.isArray())
+			valueType = valueType.getComponentType();
+		if (!valueType.isPrimitive() && !Modifier.isPublic(valueType.getModifiers())
+			&& !packageName(valueType).equals(packageName(type))) return false;
+		if (Modifier.isPublic(member.getModifiers())) return true;
+		return packageName(member.getDeclaringClass()).equals(packageName(type));
+	}
+
+	static private String packageName (Class<?> type) {
+		String name = type.getName();
+		int dot = name.lastIndexOf('.');
+		return dot < 0 ? "" : name.substring(0, dot);
+	}
+
+	static private Class<?> valueType (Member member) {
+		return member instanceof Method ? ((Method)member).getParameterTypes()[0] : ((Field)member).getType();
+	}
+
+	static private void insertConstructor (ClassWriter cw) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "com/sparkweb/reflect/PropertyAccess", "<init>", "()V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+	}
+
+	/** Inserts set(Object, int, Object) when primitiveType is null, otherwise the setter for the primitive type. */
+	static private void insertSet (ClassWriter cw, String classNameInternal, ArrayList<Member> members, Type primitiveType) {
+		int maxStack = 6;
+		int maxLocals = 4; // LLOAD and DLOAD load two slots
+		final String setterMethodName;
+		final String typeNameInternal;
+		final int loadValueInstruction;
+		if (primitiveType == null) {
+			setterMethodName = "set";
+			typeNameInternal = "Ljava/lang/Object;";
+			loadValueInstruction = ALOAD;
+		} else {
+			typeNameInternal = primitiveType.getDescriptor();
+			switch (primitiveType.getSort()) {
+			case Type.BOOLEAN:
+				setterMethodName = "setBoolean";
+				loadValueInstruction = ILOAD;
+				break;
+			case Type.BYTE:
+				setterMethodName = "setByte";
+				loadValueInstruction = ILOAD;
+				break;
+			case Type.CHAR:
+				setterMethodName = "setChar";
+				loadValueInstruction = ILOAD;
+				break;
+			case Type.SHORT:
+				setterMethodName = "setShort";
+				loadValueInstruction = ILOAD;
+				break;
+			case Type.INT:
+				setterMethodName = "setInt";
+				loadValueInstruction = ILOAD;
+				break;
+			case Type.FLOAT:
+				setterMethodName = "setFloat";
+				loadValueInstruction = FLOAD;
+				break;
+			case Type.LONG:
+				setterMethodName = "setLong";
+				loadValueInstruction = LLOAD;
+				maxLocals++;
+				break;
+			case Type.DOUBLE:
+				setterMethodName = "setDouble";
+				loadValueInstruction = DLOAD;
+				maxLocals++;
+				break;
+			default:
+				throw new IllegalArgumentException("Not a primitive type: " + primitiveType);
+			}
+		}
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, setterMethodName, "(Ljava/lang/Object;I" + typeNameInternal + ")V", null,
+			null);
+		mv.visitCode();
+		mv.visitVarInsn(ILOAD, 2);
+
+		if (!members.isEmpty()) {
+			Label[] labels = new Label[members.size()];
+			Label labelForInvalidTypes = new Label();
+			boolean hasAnyBadTypeLabel = false;
+			for (int i = 0, n = labels.length; i < n; i++) {
+				if (primitiveType == null || Type.getType(valueType(members.get(i))).equals(primitiveType))
+					labels[i] = new Label();
+				else {
+					labels[i] = labelForInvalidTypes;
+					hasAnyBadTypeLabel = true;
+				}
+			}
+			Label defaultLabel = new Label();
+			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+
+			for (int i = 0, n = labels.length; i < n; i++) {
+				if (labels[i].equals(labelForInvalidTypes)) continue;
+
+				Member member = members.get(i);
+				Type valueType = Type.getType(valueType(member));
+
+				mv.visitLabel(labels[i]);
+				mv.visitFrame(F_SAME, 0, null, 0, null);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitTypeInsn(CHECKCAST, classNameInternal);
+				mv.visitVarInsn(loadValueInstruction, 3);
+				if (primitiveType == null) insertUnbox(mv, valueType);
+
+				if (member instanceof Method) {
+					Method method = (Method)member;
+					mv.visitMethodInsn(INVOKEVIRTUAL, classNameInternal, method.getName(), Type.getMethodDescriptor(method), false);
+					// fluent setters return a value
+					Type returnType = Type.getReturnType(method);
+					if (returnType.getSize() == 2)
+						mv.visitInsn(POP2);
+					else if (returnType.getSize() == 1) mv.visitInsn(POP);
+				} else {
+					mv.visitFieldInsn(PUTFIELD, classNameInternal, member.getName(), valueType.getDescriptor());
+				}
+				mv.visitInsn(RETURN);
+			}
+			// Rest of properties: different type
+			if (hasAnyBadTypeLabel) {
+				mv.visitLabel(labelForInvalidTypes);
+				mv.visitFrame(F_SAME, 0, null, 0, null);
+				insertThrowException(mv, "Property not declared as " + primitiveType.getClassName() + ": ");
+			}
+			// Default: property not found
+			mv.visitLabel(defaultLabel);
+			mv.visitFrame(F_SAME, 0, null, 0, null);
+		}
+		insertThrowException(mv, "Property not found: ");
+		mv.visitMaxs(maxStack, maxLocals);
+		mv.visitEnd();
+	}
+
+	static private void insertUnbox (MethodVisitor mv, Type valueType) {
+		switch (valueType.getSort()) {
+		case Type.BOOLEAN:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Boolean");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z", false);
+			break;
+		case Type.BYTE:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Byte");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Byte", "byteValue", "()B", false);
+			break;
+		case Type.CHAR:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Character");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C", false);
+			break;
+		case Type.SHORT:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Short");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Short", "shortValue", "()S", false);
+			break;
+		case Type.INT:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Integer");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I", false);
+			break;
+		case Type.FLOAT:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Float");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Float", "floatValue", "()F", false);
+			break;
+		case Type.LONG:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Long");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Long", "longValue", "()J", false);
+			break;
+		case Type.DOUBLE:
+			mv.visitTypeInsn(CHECKCAST, "java/lang/Double");
+			mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Double", "doubleValue", "()D", false);
+			break;
+		case Type.ARRAY:
+			mv.visitTypeInsn(CHECKCAST, valueType.getDescriptor());
+			break;
+		case Type.OBJECT:
+			mv.visitTypeInsn(CHECKCAST, valueType.getInternalName());
+			break;
+		}
+	}
+
+	static private void insertThrowException (MethodVisitor mv, String message) {
+		mv.visitTypeInsn(NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(DUP);
+		mv.visitTypeInsn(NEW, "java/lang/StringBuilder");
+		mv.visitInsn(DUP);
+		mv.visitLdcInsn(message);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
+		mv.visitVarInsn(ILOAD, 2);
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(I)Ljava/lang/StringBuilder;", false);
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false);
+		mv.visitInsn(ATHROW);
+	}
+}
@@ -0,0 +1,142 @@
+package com.sparkweb.util;
+
+/**
+ * 预编译的通配符匹配器，匹配规则与 {@link Matcher#match(String, String, boolean)} 相同：<br>
+ * '*' 匹配0个或多个任意字符，'?' 匹配1个任意字符。
+ * <p>
+ * 编译时会识别出最常见的两种形式，匹配时不需要创建任何对象：
+ * <ul>
+ * <li>不含通配符的精确路径，比如：/favicon.ico</li>
+ * <li>只在末尾含有 '*' 的前缀路径，比如：/api/*、/static/**</li>
+ * </ul>
+ * 其它形式仍然交由 {@link Matcher#match(String, String, boolean)} 处理。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class GlobMatcher
+{
+	private static final int	EXACT	= 0;
+	private static final int	PREFIX	= 1;
+	private static final int	GLOB	= 2;
+
+	private final String		pattern;
+	private final boolean		caseSensitive;
+	private final int			kind;
+	// EXACT: 完整路径；PREFIX: 通配符之前的前缀
+	private final String		literal;
+
+	private GlobMatcher(String pattern, boolean caseSensitive) {
+		this.pattern = pattern;
+		this.caseSensitive = caseSensitive;
+
+		int star = pattern.indexOf('*');
+		if(pattern.indexOf('?') != -1)
+		{
+			this.kind = GLOB;
+			this.literal = null;
+		}
+		else if(star == -1)
+		{
+			this.kind = EXACT;
+			this.literal = pattern;
+		}
+		else if(isAllStars(pattern, star))
+		{
+			this.kind = PREFIX;
+			this.literal = pattern.substring(0, star);
+		}
+		else
+		{
+			this.kind = GLOB;
+			this.literal = null;
+		}
+	}
+
+	/**
+	 * 编译通配符表达式
+	 *
+	 * @param pattern 通配符表达式
+	 * @param caseSensitive 是否区分大小写
+	 * @return
+	 */
+	public static GlobMatcher compile(String pattern, boolean caseSensitive)
+	{
+		if(pattern == null)
+		{
+			throw new IllegalArgumentException("The pattern must not be null!");
+		}
+
+		return new GlobMatcher(pattern, caseSensitive);
+	}
+
+	/**
+	 * 判断字符串是否匹配
+	 */
+	public boolean matches(String str)
+	{
+		if(str == null)
+		{
+			return false;
+		}
+
+		switch(kind)
+		{
+			case EXACT:
+				return caseSensitive ? literal.equals(str) : literal.equalsIgnoreCase(str);
+			case PREFIX:
+				return str.regionMatches(!caseSensitive, 0, literal, 0, literal.length());
+			default:
+				return Matcher.match(pattern, str, caseSensitive);
+		}
+	}
+
+	/**
+	 * 是否是只在末尾含有通配符 '*' 的前缀表达式
+	 */
+	public boolean isPrefix()
+	{
+		return kind == PREFIX;
+	}
+
+	/**
+	 * 是否是不含任何通配符的精确表达式
+	 */
+	public boolean isExact()
+	{
+		return kind == EXACT;
+	}
+
+	/**
+	 * 获取表达式中通配符之前的固定部分，对于精确表达式即为表达式本身；
+	 * 其它形式的表达式返回 null
+	 */
+	public String literal()
+	{
+		return literal;
+	}
+
+	public String pattern()
+	{
+		return pattern;
+	}
+
+	private static boolean isAllStars(String str, int from)
+	{
+		for(int i = from, len = str.length(); i < len; i++)
+		{
+			if(str.charAt(i) != '*')
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return pattern;
+	}
+}
@@ -145,6 +145,44 @@ public class MimeTypes
 		}
 	}
 
+	/**
+	 * check whether a response of the content-type is worth compressing.<br/>
+	 * Only textual types (text/*, json, javascript, xml, svg ...) are compressible; 
+	 * images, audio, video and archives are already compressed.
+	 * 
+	 * @param contentType the content-type, may contain parameters eg. <em>"text/html; charset=utf-8"</em>
+	 */
+	public static boolean isCompressible(String contentType)
+	{
+		if(contentType == null)
+		{
+			return false;
+		}
+		
+		int paramIndex = contentType.indexOf(';');
+		String mimeType = (paramIndex != -1 ? contentType.substring(0, paramIndex) : contentType).trim().toLowerCase();
+		
+		if(mimeType.startsWith("text/"))
+		{
+			return true;
+		}
+		
+		int slash = mimeType.indexOf('/');
+		if(slash == -1)
+		{
+			return false;
+		}
+		
+		String subType = mimeType.substring(slash + 1);
+		
+		return subType.equals("json") || subType.endsWith("+json") 
+				|| subType.equals("xml") || subType.endsWith("+xml") 
+				|| subType.equals("javascript") || subType.equals("x-javascript") || subType.equals("ecmascript") 
+				|| mimeType.equals("application/x-font-ttf") || mimeType.equals("application/vnd.ms-fontobject") 
+				|| mimeType.equals("font/ttf") || mimeType.equals("font/otf") 
+				|| mimeType.equals("image/x-icon") || mimeType.equals("image/bmp");
+	}
+
 	private static String getCurrentCharset()
 	{
 		String charset;
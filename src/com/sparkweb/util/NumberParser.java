@@ -0,0 +1,125 @@
+package com.sparkweb.util;
+
+/**
+ * 按字符直接解析十进制整数，不创建子串也不装箱 <br>
+ * 格式与 Integer.parseInt、Long.parseLong 相同：可选的 '+' 或 '-' 符号后跟至少一位数字（只接受ASCII数字），
+ * 不允许空白字符，超出类型范围时视为非法。
+ * <ul>
+ * <li>带默认值的方法：参数为 null 或者非法时返回默认值，不抛出异常，用于请求参数的读取；</li>
+ * <li>指定区间的方法：解析 [from, to) 区间的字符，非法时抛出 NumberFormatException，用于参数绑定。</li>
+ * </ul>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class NumberParser
+{
+	private NumberParser() {
+	}
+
+	/**
+	 * 解析 int，参数为 null 或者非法时返回默认值
+	 */
+	public static int parseInt(CharSequence s, int defaultValue)
+	{
+		if(s == null)
+		{
+			return defaultValue;
+		}
+
+		return (int) parse(s, 0, s.length(), Integer.MIN_VALUE, Integer.MAX_VALUE, defaultValue, false);
+	}
+
+	/**
+	 * 解析 long，参数为 null 或者非法时返回默认值
+	 */
+	public static long parseLong(CharSequence s, long defaultValue)
+	{
+		if(s == null)
+		{
+			return defaultValue;
+		}
+
+		return parse(s, 0, s.length(), Long.MIN_VALUE, Long.MAX_VALUE, defaultValue, false);
+	}
+
+	/**
+	 * 解析 [from, to) 区间的 int
+	 *
+	 * @throws NumberFormatException 区间内不是合法的 int
+	 */
+	public static int parseInt(CharSequence s, int from, int to) throws NumberFormatException
+	{
+		return (int) parse(s, from, to, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, true);
+	}
+
+	/**
+	 * 解析 [from, to) 区间的 long
+	 *
+	 * @throws NumberFormatException 区间内不是合法的 long
+	 */
+	public static long parseLong(CharSequence s, int from, int to) throws NumberFormatException
+	{
+		return parse(s, from, to, Long.MIN_VALUE, Long.MAX_VALUE, 0, true);
+	}
+
+	/**
+	 * 与 Integer.parseInt 相同，以负数累加，这样 min 本身也不会溢出
+	 */
+	private static long parse(CharSequence s, int from, int to, long min, long max, long defaultValue, boolean fail)
+	{
+		if(from >= to)
+		{
+			return invalid(s, from, to, defaultValue, fail);
+		}
+
+		boolean negative = false;
+		long limit = -max;
+		int i = from;
+		char first = s.charAt(i);
+		if(first == '-' || first == '+')
+		{
+			if(first == '-')
+			{
+				negative = true;
+				limit = min;
+			}
+
+			if(++i == to)
+			{
+				return invalid(s, from, to, defaultValue, fail);
+			}
+		}
+
+		long multmin = limit / 10;
+		long result = 0;
+		for(; i < to; i++)
+		{
+			int digit = s.charAt(i) - '0';
+			if(digit < 0 || digit > 9 || result < multmin)
+			{
+				return invalid(s, from, to, defaultValue, fail);
+			}
+
+			result *= 10;
+			if(result < limit + digit)
+			{
+				return invalid(s, from, to, defaultValue, fail);
+			}
+
+			result -= digit;
+		}
+
+		return negative ? result : -result;
+	}
+
+	private static long invalid(CharSequence s, int from, int to, long defaultValue, boolean fail)
+	{
+		if(fail)
+		{
+			throw new NumberFormatException("For input string: \"" + s.subSequence(from, Math.max(from, to)) + "\"");
+		}
+
+		return defaultValue;
+	}
+}
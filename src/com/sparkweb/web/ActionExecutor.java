@@ -0,0 +1,167 @@
+package com.sparkweb.web;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 执行 @Offload Action 的线程池 <br>
+ * 同时执行和等待执行的任务数不超过 offloadThreads() + offloadQueueSize()，超出时立即拒绝，
+ * 不会在容器线程上等待；任务执行时当前请求的 HttpContext 绑定在执行线程上。
+ * <p>
+ * 没有通过 ExtendedWebSettings.offloadExecutor() 指定线程池时，运行在支持虚拟线程的 JDK 上使用虚拟线程，
+ * 否则使用固定大小的线程池。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class ActionExecutor
+{
+	private static final Log		log	= LogFactory.getLog(ActionExecutor.class);
+
+	private final ExecutorService	executor;
+	// 同时执行和等待执行的任务数的上限
+	private final Semaphore			permits;
+
+	ActionExecutor(ExecutorService executor, int maxPending) {
+		this.executor = executor;
+		this.permits = new Semaphore(Math.max(maxPending, 1));
+	}
+
+	/**
+	 * 根据配置创建线程池
+	 */
+	static ActionExecutor create(ExtendedWebSettings settings)
+	{
+		int threads = Math.max(settings.offloadThreads(), 1);
+		int queueSize = Math.max(settings.offloadQueueSize(), 0);
+
+		ExecutorService executor = settings.offloadExecutor();
+		if(executor == null)
+		{
+			executor = newVirtualThreadExecutor();
+		}
+
+		if(executor == null)
+		{
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(Math.max(queueSize, 1)), new OffloadThreadFactory());
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+
+		return new ActionExecutor(executor, threads + queueSize);
+	}
+
+	/**
+	 * 在线程池中执行任务，执行期间当前请求的 HttpContext 绑定在执行线程上
+	 *
+	 * @param task 任务
+	 * @return 线程池已满时返回 false
+	 */
+	public boolean execute(Runnable task)
+	{
+		return reserve() && executeReserved(task);
+	}
+
+	/**
+	 * 预留一个执行名额，用于在执行拦截器之前判断线程池是否已满 <br>
+	 * 预留的名额必须交给 {@link #executeReserved(Runnable)} 或者通过 {@link #cancel()} 释放。
+	 *
+	 * @return 线程池已满时返回 false
+	 */
+	public boolean reserve()
+	{
+		return this.permits.tryAcquire();
+	}
+
+	/**
+	 * 释放没有使用的预留名额
+	 */
+	public void cancel()
+	{
+		this.permits.release();
+	}
+
+	/**
+	 * 使用 {@link #reserve()} 预留的名额执行任务，无论是否执行成功名额都不再属于调用者
+	 *
+	 * @param task 任务
+	 * @return 线程池拒绝执行时返回 false
+	 */
+	public boolean executeReserved(final Runnable task)
+	{
+		final HttpContext httpContext = HttpContext.current();
+		try
+		{
+			this.executor.execute(new Runnable() {
+				public void run()
+				{
+					HttpContext previous = httpContext.bind();
+					try
+					{
+						task.run();
+					} finally
+					{
+						httpContext.unbind(previous);
+						permits.release();
+					}
+				}
+			});
+
+			return true;
+		} catch(RejectedExecutionException e)
+		{
+			this.permits.release();
+			return false;
+		}
+	}
+
+	void shutdown()
+	{
+		this.executor.shutdown();
+	}
+
+	/**
+	 * JDK 21+ 的 Executors.newVirtualThreadPerTaskExecutor()，不支持时返回 null
+	 */
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try
+		{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			ExecutorService executor = (ExecutorService) factory.invoke(null);
+			log.info("------WebSpark @Offload actions run on virtual threads.");
+			return executor;
+		} catch(NoSuchMethodException e)
+		{
+			return null;
+		} catch(Exception e)
+		{
+			log.warn("Could not create the virtual thread executor, use a thread pool instead.", e);
+			return null;
+		}
+	}
+
+	private static final class OffloadThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger	count	= new AtomicInteger(0);
+
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "sparkweb-offload-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -16,6 +16,23 @@ public final class ActionInterceptor extends ActionInvoker
 		super(_accessor, _methodIndex);
 	}
 
+	/**
+	 * 拦截器的参数只能是 Request、Response 以及 @Finally、@Catch 中捕获的异常
+	 */
+	@Override
+	ArgumentResolver[] compileArgumentResolvers()
+	{
+		int argCount = this.method.getParameterTypes().length;
+		ArgumentResolver[] resolvers = new ArgumentResolver[argCount];
+		
+		for(int i = 0; i < argCount; i++)
+		{
+			resolvers[i] = ArgumentResolver.ofInterceptor(this.method, i);
+		}
+		
+		return resolvers;
+	}
+
 	public <T extends Annotation> T getInterceptor(Class<T> interceptorClass)
 	{
 		return (methodAccessor.getMethods()[methodIndex]).getAnnotation(interceptorClass);
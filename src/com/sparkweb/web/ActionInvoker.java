@@ -17,6 +17,11 @@ public class ActionInvoker
 	protected String		action;
 	protected Method		method;
 	protected String[]		methodParamNames = new String[0];
+	
+	private static final Object[]	NO_ARGS	= new Object[0];
+	
+	// 在路由注册时生成的Action参数解析器
+	private ArgumentResolver[]	argumentResolvers;
 
 	public ActionInvoker(MethodAccess _accessor, int _methodIndex) {
 		this.methodAccessor = _accessor;
@@ -25,6 +30,62 @@ public class ActionInvoker
 		this.method = this.methodAccessor.getMethods()[this.methodIndex];
 		this.action = this.methodAccessor.getDeclaringClass().getName() + '.' + method.getName();
 		this.methodParamNames = this.methodAccessor.getParameterNames()[this.methodIndex];
+		
+		this.argumentResolvers = compileArgumentResolvers();
+	}
+	
+	/**
+	 * 根据Action方法的参数定义生成参数解析器，避免每次请求都进行反射解析
+	 */
+	ArgumentResolver[] compileArgumentResolvers()
+	{
+		int argCount = this.method.getParameterTypes().length;
+		ArgumentResolver[] resolvers = new ArgumentResolver[argCount];
+		
+		for(int i = 0; i < argCount; i++)
+		{
+			resolvers[i] = ArgumentResolver.of(this.method, i, this.methodParamNames[i]);
+		}
+		
+		return resolvers;
+	}
+	
+	/**
+	 * 使用预先生成的参数解析器，从当前请求中解析出Action的调用参数
+	 * 
+	 * @param request 当前请求
+	 * @param response 当前响应
+	 * @return Action的调用参数
+	 */
+	public Object[] resolveArguments(final Request request, final Response response)
+	{
+		return resolveArguments(request, response, null);
+	}
+	
+	/**
+	 * 使用预先生成的参数解析器，从当前请求中解析出调用参数
+	 * 
+	 * @param request 当前请求
+	 * @param response 当前响应
+	 * @param cause 传递给 @Finally、@Catch 拦截器的异常
+	 * @return 调用参数
+	 */
+	public Object[] resolveArguments(final Request request, final Response response, final Throwable cause)
+	{
+		ArgumentResolver[] resolvers = this.argumentResolvers;
+		if(resolvers.length == 0)
+		{
+			return NO_ARGS;
+		}
+		
+		Object[] args = new Object[resolvers.length];
+		
+		for(int i = 0, len = resolvers.length; i < len; i++)
+		{
+			args[i] = resolvers[i].resolve(request, response, cause);
+		}
+		
+		return args;
 	}
 	
 	public String getAction()
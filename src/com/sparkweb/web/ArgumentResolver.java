@@ -0,0 +1,261 @@
+package com.sparkweb.web;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+
+import com.sparkweb.binding.Binder;
+import com.sparkweb.binding.ParamNode;
+import com.sparkweb.web.annotation.PathParam;
+import com.sparkweb.web.annotation.RequestBody;
+
+/**
+ * Action参数解析器 <br>
+ * 在路由注册时根据 Action 方法的参数定义（类型、泛型、注解）一次性生成，
+ * 请求分发时直接执行解析器获取参数值，不再进行任何反射和参数Map的复制。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+abstract class ArgumentResolver
+{
+	/**
+	 * 解析当前请求中该参数的值
+	 * 
+	 * @param request 当前请求
+	 * @param response 当前响应
+	 * @param cause 传递给 @Finally、@Catch 拦截器的异常，Action 调用时为 null
+	 */
+	abstract Object resolve(final Request request, final Response response, final Throwable cause);
+
+	/**
+	 * 根据Action方法中第 index 个参数的定义创建对应的参数解析器
+	 *
+	 * @param method Action方法
+	 * @param index 参数索引位置
+	 * @param name 参数名称
+	 * @return
+	 */
+	static ArgumentResolver of(Method method, int index, String name)
+	{
+		Class<?> type = method.getParameterTypes()[index];
+		Type genericType = method.getGenericParameterTypes()[index];
+		Annotation[] annotations = method.getParameterAnnotations()[index];
+
+		if(type == Request.class)
+		{
+			return REQUEST;
+		}
+
+		if(type == Response.class)
+		{
+			return RESPONSE;
+		}
+
+		Binder.MethodAndParamInfo methodInfo = new Binder.MethodAndParamInfo(null, method, index + 1);
+
+		for(Annotation annotation : annotations)
+		{
+			if(annotation.annotationType() == PathParam.class)
+			{
+				String pathName = ((PathParam) annotation).value().trim();
+				Binder.prepare(type, genericType);
+				return new PathParamResolver(name, pathName.length() == 0 ? name : pathName, type, genericType,
+						annotations, methodInfo);
+			}
+
+			if(annotation.annotationType() == RequestBody.class)
+			{
+				// 表单请求体绑定为 JavaBean
+				Binder.prepare(type, genericType);
+				return new RequestBodyResolver(type);
+			}
+		}
+
+		// 没有任何绑定注解的字符串参数直接从请求参数中获取
+		if(annotations.length == 0 && CharSequence.class.isAssignableFrom(type))
+		{
+			return new ParamResolver(name);
+		}
+
+		// 在路由注册时生成参数中 JavaBean 的属性绑定信息，首次请求不再进行反射解析
+		Binder.prepare(type, genericType);
+		return new BindResolver(name, type, genericType, annotations, methodInfo);
+	}
+
+	/**
+	 * 根据拦截器方法中第 index 个参数的类型创建对应的参数解析器：<br>
+	 * 拦截器只接受 Request、Response 和 Throwable 类型的参数，其它类型的参数总是传入 null
+	 */
+	static ArgumentResolver ofInterceptor(Method method, int index)
+	{
+		Class<?> type = method.getParameterTypes()[index];
+		
+		if(type == Request.class)
+		{
+			return REQUEST;
+		}
+		
+		if(type == Response.class)
+		{
+			return RESPONSE;
+		}
+		
+		if(Throwable.class.isAssignableFrom(type))
+		{
+			return CAUSE;
+		}
+		
+		return NULL;
+	}
+
+	static final ArgumentResolver	REQUEST		= new ArgumentResolver() {
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return request;
+		}
+	};
+
+	static final ArgumentResolver	RESPONSE	= new ArgumentResolver() {
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return response;
+		}
+	};
+
+	static final ArgumentResolver	CAUSE		= new ArgumentResolver() {
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return cause;
+		}
+	};
+
+	static final ArgumentResolver	NULL		= new ArgumentResolver() {
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return null;
+		}
+	};
+
+	/**
+	 * 字符串参数：request.param(name)
+	 */
+	static final class ParamResolver extends ArgumentResolver
+	{
+		private final String	name;
+
+		ParamResolver(String name) {
+			this.name = name;
+		}
+
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return request.param(name);
+		}
+	}
+
+	/**
+	 * 使用 {@link Binder} 从请求参数中绑定基本类型、数组、集合以及JavaBean参数，
+	 * 同一个请求中的所有参数共享一棵参数树。
+	 */
+	static final class BindResolver extends ArgumentResolver
+	{
+		private final String						name;
+		private final Class<?>						type;
+		private final Type							genericType;
+		private final Annotation[]					annotations;
+		private final Binder.MethodAndParamInfo	methodInfo;
+
+		BindResolver(String name, Class<?> type, Type genericType, Annotation[] annotations,
+				Binder.MethodAndParamInfo methodInfo) {
+			this.name = name;
+			this.type = type;
+			this.genericType = genericType;
+			this.annotations = annotations;
+			this.methodInfo = methodInfo;
+		}
+
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return Binder.bind(request.paramNode(), name, type, genericType, annotations, methodInfo);
+		}
+	}
+
+	/**
+	 * 使用 @PathParam 标注的参数，从URL命名参数中绑定
+	 */
+	static final class PathParamResolver extends ArgumentResolver
+	{
+		private final String						name;
+		private final String						pathName;
+		private final Class<?>						type;
+		private final Type							genericType;
+		private final Annotation[]					annotations;
+		private final Binder.MethodAndParamInfo	methodInfo;
+
+		PathParamResolver(String name, String pathName, Class<?> type, Type genericType, Annotation[] annotations,
+				Binder.MethodAndParamInfo methodInfo) {
+			this.name = name;
+			this.pathName = pathName;
+			this.type = type;
+			this.genericType = genericType;
+			this.annotations = annotations;
+			this.methodInfo = methodInfo;
+		}
+
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			return Binder.bind(ParamNode.convert(Collections.singletonMap(name, request.pathParams(pathName))),
+							name, type, genericType, annotations, methodInfo);
+		}
+	}
+
+	/**
+	 * 使用 @RequestBody 标注的参数，从 Request Payload 中获取
+	 */
+	static final class RequestBodyResolver extends ArgumentResolver
+	{
+		private final Class<?>	type;
+
+		RequestBodyResolver(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		Object resolve(Request request, Response response, Throwable cause)
+		{
+			String contentType = request.header("Content-Type");
+			// 表单请求体只解析一次（FormHttpRequest），@RequestBody 参数使用解析后的表单参数
+			if(contentType != null && contentType.indexOf("application/x-www-form-urlencoded") != -1)
+			{
+				if(Map.class.isAssignableFrom(type))
+				{
+					return request.params();
+				}
+				
+				return CharSequence.class.isAssignableFrom(type) ? null : request.bean(type);
+			}
+
+			if(CharSequence.class.isAssignableFrom(type))
+			{
+				return request.body();
+			}
+
+			if(contentType != null && contentType.indexOf("application/json") != -1)
+			{
+				return request.body(type);
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.sparkweb.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 异步请求的状态 <br>
+ * 容器线程离开 RouteDispatcher.doFilter 和 Promise 完成这两件事都发生之后，
+ * 才由后发生的一方所在的线程继续处理请求，保证请求不会被两个线程同时处理。
+ * 等待超时或者连接出错时以异常结束 Promise。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class AsyncDispatch implements AsyncListener
+{
+	private final AsyncContext			asyncContext;
+	private final Promise				promise;
+	private final Promise.Continuation	continuation;
+	private final long					timeout;
+
+	// 请求结束的处理：继续执行路由，输出响应并清理 HttpContext
+	private Runnable					completion;
+	private boolean						returned	= false;
+	private boolean						resolved	= false;
+	private boolean						resumed		= false;
+
+	AsyncDispatch(HttpServletRequest req, Promise promise, Promise.Continuation continuation, long timeout) {
+		this.promise = promise;
+		this.continuation = continuation;
+		this.timeout = timeout;
+
+		this.asyncContext = req.startAsync();
+		this.asyncContext.setTimeout(timeout);
+		this.asyncContext.addListener(this);
+
+		promise.onDone(new Runnable() {
+			public void run()
+			{
+				promiseDone();
+			}
+		});
+	}
+
+	/**
+	 * 容器线程已经离开 RouteDispatcher.doFilter
+	 *
+	 * @param completion 请求结束的处理
+	 */
+	void dispatchReturned(Runnable completion)
+	{
+		synchronized(this)
+		{
+			this.completion = completion;
+			this.returned = true;
+			if(!this.resolved || this.resumed)
+			{
+				return;
+			}
+			this.resumed = true;
+		}
+
+		completion.run();
+	}
+
+	private void promiseDone()
+	{
+		Runnable _completion;
+		synchronized(this)
+		{
+			this.resolved = true;
+			if(!this.returned || this.resumed)
+			{
+				return;
+			}
+			this.resumed = true;
+			_completion = this.completion;
+		}
+
+		_completion.run();
+	}
+
+	/**
+	 * 继续执行路由
+	 */
+	void resume() throws Throwable
+	{
+		this.continuation.resume(this.promise);
+	}
+
+	/**
+	 * 结束异步请求
+	 */
+	void complete()
+	{
+		this.asyncContext.complete();
+	}
+
+	public void onTimeout(AsyncEvent event) throws IOException
+	{
+		this.promise.fail(new TimeoutException("The asynchronous request has not been completed in " + this.timeout + "ms!"));
+	}
+
+	public void onError(AsyncEvent event) throws IOException
+	{
+		this.promise.fail(event.getThrowable() != null ? event.getThrowable() : new IOException("Asynchronous request error"));
+	}
+
+	public void onComplete(AsyncEvent event) throws IOException
+	{
+	}
+
+	public void onStartAsync(AsyncEvent event) throws IOException
+	{
+	}
+}
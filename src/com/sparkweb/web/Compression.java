@@ -0,0 +1,202 @@
+package com.sparkweb.web;
+
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.sparkweb.util.MimeTypes;
+
+/**
+ * 响应压缩的协商与 gzip/deflate 编码 <br>
+ * Deflater 的创建和内部缓冲区的分配开销都比较大，这里为每个线程缓存一个 gzip 和一个 deflate 的 Deflater 重复使用：
+ * 使用时从线程中借出，用完后重置并归还，保证同一个 Deflater 不会同时被两个响应使用。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class Compression
+{
+	public static final String				GZIP			= "gzip";
+	public static final String				DEFLATE			= "deflate";
+
+	// gzip 文件头：ID1 ID2 CM(deflate) FLG MTIME(4) XFL OS
+	static final byte[]						GZIP_HEADER		= { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private static final ThreadLocal<Deflater>	GZIP_DEFLATERS		= new ThreadLocal<Deflater>();
+	private static final ThreadLocal<Deflater>	DEFLATE_DEFLATERS	= new ThreadLocal<Deflater>();
+
+	private Compression() {
+	}
+
+	/**
+	 * 根据请求头 Accept-Encoding 协商压缩方式，优先使用 gzip
+	 *
+	 * @param acceptEncoding 请求头 Accept-Encoding
+	 * @return gzip、deflate，不支持压缩时返回 null
+	 */
+	public static String negotiate(String acceptEncoding)
+	{
+		if(acceptEncoding == null || acceptEncoding.length() == 0)
+		{
+			return null;
+		}
+
+		boolean deflate = false;
+
+		for(String coding : acceptEncoding.split(","))
+		{
+			String name = coding;
+			int paramIndex = coding.indexOf(';');
+			if(paramIndex != -1)
+			{
+				name = coding.substring(0, paramIndex);
+				// q=0 表示明确不接受
+				if(isZeroQuality(coding.substring(paramIndex + 1)))
+				{
+					continue;
+				}
+			}
+
+			name = name.trim().toLowerCase(Locale.US);
+			if(GZIP.equals(name) || "x-gzip".equals(name))
+			{
+				return GZIP;
+			}
+
+			if(DEFLATE.equals(name))
+			{
+				deflate = true;
+			}
+		}
+
+		return deflate ? DEFLATE : null;
+	}
+
+	/**
+	 * 当前请求的响应是否应该使用 gzip 压缩：开启了响应压缩、客户端接受 gzip、内容类型可压缩且内容达到压缩阈值
+	 *
+	 * @param request 当前请求
+	 * @param contentType 响应内容类型
+	 * @param length 响应内容长度
+	 */
+	public static boolean shouldGzip(Request request, String contentType, int length)
+	{
+		ExtendedWebSettings settings = SparkConfig.getConfig().extendedSettings();
+		if(settings == null || !settings.compression() || "HEAD".equalsIgnoreCase(request.method()))
+		{
+			return false;
+		}
+
+		return length >= settings.compressionThreshold() && MimeTypes.isCompressible(contentType)
+				&& GZIP.equals(negotiate(request.header("Accept-Encoding")));
+	}
+
+	/**
+	 * 使用 gzip 压缩数据
+	 */
+	public static byte[] gzip(byte[] data)
+	{
+		Deflater deflater = borrow(GZIP);
+		try
+		{
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] buf = new byte[Math.max(64, data.length / 2) + GZIP_HEADER.length + 8];
+			System.arraycopy(GZIP_HEADER, 0, buf, 0, GZIP_HEADER.length);
+			int len = GZIP_HEADER.length;
+
+			while(!deflater.finished())
+			{
+				if(len == buf.length)
+				{
+					byte[] grown = new byte[buf.length * 2];
+					System.arraycopy(buf, 0, grown, 0, len);
+					buf = grown;
+				}
+
+				len += deflater.deflate(buf, len, buf.length - len);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(data);
+
+			byte[] result = new byte[len + 8];
+			System.arraycopy(buf, 0, result, 0, len);
+			writeTrailer(result, len, crc.getValue(), data.length);
+
+			return result;
+		} finally
+		{
+			giveBack(GZIP, deflater);
+		}
+	}
+
+	/**
+	 * 从当前线程借出一个 Deflater
+	 *
+	 * @param encoding gzip 或 deflate
+	 */
+	static Deflater borrow(String encoding)
+	{
+		ThreadLocal<Deflater> pool = GZIP.equals(encoding) ? GZIP_DEFLATERS : DEFLATE_DEFLATERS;
+		Deflater deflater = pool.get();
+		if(deflater != null)
+		{
+			pool.set(null);
+			return deflater;
+		}
+
+		// gzip 自行写入文件头和校验尾，只需要原始的 deflate 数据
+		return new Deflater(Deflater.DEFAULT_COMPRESSION, GZIP.equals(encoding));
+	}
+
+	/**
+	 * 重置 Deflater 并归还给当前线程，当前线程已经有缓存时直接释放
+	 */
+	static void giveBack(String encoding, Deflater deflater)
+	{
+		ThreadLocal<Deflater> pool = GZIP.equals(encoding) ? GZIP_DEFLATERS : DEFLATE_DEFLATERS;
+		if(pool.get() == null)
+		{
+			deflater.reset();
+			pool.set(deflater);
+		}
+		else
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * 写入 gzip 校验尾：CRC32 和原始数据长度，均为小端字节序
+	 */
+	static void writeTrailer(byte[] buf, int offset, long crc, long size)
+	{
+		for(int i = 0; i < 4; i++)
+		{
+			buf[offset + i] = (byte) (crc >> (8 * i));
+			buf[offset + 4 + i] = (byte) (size >> (8 * i));
+		}
+	}
+
+	private static boolean isZeroQuality(String params)
+	{
+		for(String param : params.split(";"))
+		{
+			param = param.trim();
+			if(param.startsWith("q=") || param.startsWith("Q="))
+			{
+				try
+				{
+					return Double.parseDouble(param.substring(2).trim()) <= 0;
+				} catch(NumberFormatException e)
+				{
+					return false;
+				}
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,549 @@
+package com.sparkweb.web;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.sparkweb.util.MimeTypes;
+
+/**
+ * 响应压缩包装 <br>
+ * 响应内容先缓冲在内存中，达到压缩阈值时再根据响应状态、内容类型和 Content-Encoding 决定是否压缩：
+ * <ul>
+ * <li>小于阈值的响应原样输出，并设置 Content-Length；</li>
+ * <li>状态不是 200、内容类型不可压缩、已经设置了 Content-Encoding 的响应原样输出；</li>
+ * <li>其余的响应边写边压缩，不需要缓冲完整的响应内容。</li>
+ * </ul>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class CompressionResponse extends HttpServletResponseWrapper
+{
+	private static final int	UNDECIDED		= 0;
+	private static final int	RAW				= 1;
+	private static final int	COMPRESS		= 2;
+
+	// JDK 7+ 的 Deflater.deflate(byte[], int, int, int)，flush() 时用 SYNC_FLUSH 输出已经写入的内容；
+	// 不支持时已经写入的内容在 Deflater 的缓冲区满或者压缩结束时才输出
+	private static final Method	SYNC_FLUSH		= syncFlushMethod();
+	// Deflater.SYNC_FLUSH
+	private static final int	SYNC_FLUSH_MODE	= 2;
+
+	private final String		encoding;
+	private final int			threshold;
+
+	private int					mode			= UNDECIDED;
+	// sendError、sendRedirect 的响应不进行压缩
+	private boolean				bypass			= false;
+
+	// 决定是否压缩之前缓冲的内容
+	private byte[]				buffer;
+	private int					count			= 0;
+	// 决定是否压缩之前设置的 Content-Length
+	private long				contentLength	= -1;
+
+	private Deflater			deflater;
+	private CRC32				crc;
+	private byte[]				deflateBuf;
+
+	private ServletOutputStream	target;
+	private ServletOutputStream	outputStream;
+	private PrintWriter			writer;
+
+	CompressionResponse(HttpServletResponse res, String encoding, int threshold) {
+		super(res);
+		this.encoding = encoding;
+		this.threshold = Math.max(threshold, 0);
+		this.buffer = new byte[Math.min(Math.max(this.threshold, 256), 8192)];
+	}
+
+	/**
+	 * 输出缓冲的内容并结束压缩，必须在请求处理完成后调用
+	 */
+	void finish() throws IOException
+	{
+		if(this.writer != null)
+		{
+			this.writer.flush();
+		}
+
+		if(this.mode == UNDECIDED)
+		{
+			this.mode = RAW;
+
+			if(this.count > 0 || this.contentLength >= 0)
+			{
+				super.setContentLength(this.contentLength >= 0 ? (int) this.contentLength : this.count);
+			}
+
+			if(isCompressible())
+			{
+				addVary();
+				// 304 的 ETag 需要与压缩后的 200 响应保持一致
+				if(!this.bypass && getStatus() == HttpServletResponse.SC_NOT_MODIFIED)
+				{
+					renameEtag();
+				}
+			}
+
+			if(this.count > 0)
+			{
+				target().write(this.buffer, 0, this.count);
+				this.count = 0;
+			}
+		}
+		else if(this.mode == COMPRESS)
+		{
+			this.deflater.finish();
+			while(!this.deflater.finished())
+			{
+				drain();
+			}
+
+			if(Compression.GZIP.equals(this.encoding))
+			{
+				byte[] trailer = new byte[8];
+				Compression.writeTrailer(trailer, 0, this.crc.getValue(), this.deflater.getBytesRead());
+				target().write(trailer);
+			}
+
+			releaseDeflater();
+			this.mode = RAW;
+		}
+	}
+
+	/**
+	 * 释放借用的 Deflater，在请求异常结束时也必须调用
+	 */
+	void releaseDeflater()
+	{
+		if(this.deflater != null)
+		{
+			Compression.giveBack(this.encoding, this.deflater);
+			this.deflater = null;
+		}
+	}
+
+	private void write(byte[] b, int off, int len) throws IOException
+	{
+		if(len <= 0)
+		{
+			return;
+		}
+
+		if(this.mode == UNDECIDED)
+		{
+			if(this.count + len <= this.threshold && this.count + len <= this.buffer.length)
+			{
+				System.arraycopy(b, off, this.buffer, this.count, len);
+				this.count += len;
+				return;
+			}
+
+			if(this.count + len <= this.threshold)
+			{
+				// 阈值大于初始缓冲区，按需扩大
+				byte[] grown = new byte[Math.min(Math.max(this.buffer.length * 2, this.count + len), this.threshold)];
+				System.arraycopy(this.buffer, 0, grown, 0, this.count);
+				this.buffer = grown;
+				System.arraycopy(b, off, this.buffer, this.count, len);
+				this.count += len;
+				return;
+			}
+
+			decide();
+		}
+
+		if(this.mode == COMPRESS)
+		{
+			deflate(b, off, len);
+		}
+		else
+		{
+			target().write(b, off, len);
+		}
+	}
+
+	/**
+	 * 决定是否压缩，并输出已经缓冲的内容
+	 */
+	private void decide() throws IOException
+	{
+		boolean compressible = isCompressible();
+		if(compressible)
+		{
+			addVary();
+		}
+
+		if(compressible && !this.bypass && getStatus() == HttpServletResponse.SC_OK
+				&& getHeader("Content-Encoding") == null)
+		{
+			this.mode = COMPRESS;
+			super.setHeader("Content-Encoding", this.encoding);
+			renameEtag();
+
+			this.deflater = Compression.borrow(this.encoding);
+			this.deflateBuf = new byte[8192];
+			startStream();
+		}
+		else
+		{
+			this.mode = RAW;
+			if(this.contentLength >= 0)
+			{
+				super.setContentLength((int) this.contentLength);
+			}
+		}
+
+		if(this.count > 0)
+		{
+			int buffered = this.count;
+			this.count = 0;
+
+			if(this.mode == COMPRESS)
+			{
+				deflate(this.buffer, 0, buffered);
+			}
+			else
+			{
+				target().write(this.buffer, 0, buffered);
+			}
+		}
+	}
+
+	private void startStream() throws IOException
+	{
+		if(Compression.GZIP.equals(this.encoding))
+		{
+			this.crc = new CRC32();
+			target().write(Compression.GZIP_HEADER);
+		}
+	}
+
+	private void deflate(byte[] b, int off, int len) throws IOException
+	{
+		if(this.crc != null)
+		{
+			this.crc.update(b, off, len);
+		}
+
+		this.deflater.setInput(b, off, len);
+		while(!this.deflater.needsInput())
+		{
+			drain();
+		}
+	}
+
+	private void drain() throws IOException
+	{
+		int len = this.deflater.deflate(this.deflateBuf, 0, this.deflateBuf.length);
+		if(len > 0)
+		{
+			target().write(this.deflateBuf, 0, len);
+		}
+	}
+
+	private void flushContent() throws IOException
+	{
+		if(this.writer != null)
+		{
+			this.writer.flush();
+		}
+
+		// 响应内容还未知时，已经有内容需要发送给客户端，只能提前决定
+		if(this.mode == UNDECIDED && this.count > 0)
+		{
+			decide();
+		}
+
+		if(this.mode == COMPRESS && SYNC_FLUSH != null)
+		{
+			int len;
+			do
+			{
+				len = syncFlush();
+				if(len > 0)
+				{
+					target().write(this.deflateBuf, 0, len);
+				}
+			} while(len == this.deflateBuf.length);
+		}
+
+		if(this.target != null)
+		{
+			this.target.flush();
+		}
+	}
+
+	private int syncFlush() throws IOException
+	{
+		try
+		{
+			return ((Integer) SYNC_FLUSH.invoke(this.deflater, this.deflateBuf, 0, this.deflateBuf.length, SYNC_FLUSH_MODE)).intValue();
+		} catch(Exception e)
+		{
+			throw new IOException("Could not flush the compressed content!", e);
+		}
+	}
+
+	private static Method syncFlushMethod()
+	{
+		try
+		{
+			return Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+		} catch(NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	private boolean isCompressible()
+	{
+		return MimeTypes.isCompressible(getContentType());
+	}
+
+	private void addVary()
+	{
+		String vary = getHeader("Vary");
+		if(vary == null)
+		{
+			super.setHeader("Vary", "Accept-Encoding");
+		}
+		else if(vary.toLowerCase().indexOf("accept-encoding") == -1 && !"*".equals(vary.trim()))
+		{
+			super.setHeader("Vary", vary + ", Accept-Encoding");
+		}
+	}
+
+	/**
+	 * 压缩后的内容与原始内容是不同的表示，强 ETag 需要区分：&quot;xxx&quot; --> &quot;xxx-gzip&quot;
+	 */
+	private void renameEtag()
+	{
+		String etag = getHeader("ETag");
+		if(etag != null && etag.length() > 1 && etag.charAt(etag.length() - 1) == '"'
+				&& !etag.endsWith("-" + this.encoding + "\""))
+		{
+			super.setHeader("ETag", etag.substring(0, etag.length() - 1) + '-' + this.encoding + '"');
+		}
+	}
+
+	private ServletOutputStream target() throws IOException
+	{
+		if(this.target == null)
+		{
+			this.target = super.getOutputStream();
+		}
+
+		return this.target;
+	}
+
+	private static boolean isContentLength(String name)
+	{
+		return "Content-Length".equalsIgnoreCase(name);
+	}
+
+	@Override
+	public void setContentLength(int len)
+	{
+		if(this.mode == UNDECIDED)
+		{
+			this.contentLength = len;
+		}
+		else if(this.mode == RAW)
+		{
+			super.setContentLength(len);
+		}
+	}
+
+	@Override
+	public void setHeader(String name, String value)
+	{
+		if(isContentLength(name))
+		{
+			try
+			{
+				setContentLength(Integer.parseInt(value.trim()));
+			} catch(NumberFormatException e)
+			{
+				// ignore invalid Content-Length
+			}
+			return;
+		}
+
+		super.setHeader(name, value);
+	}
+
+	@Override
+	public void addHeader(String name, String value)
+	{
+		if(isContentLength(name))
+		{
+			setHeader(name, value);
+			return;
+		}
+
+		super.addHeader(name, value);
+	}
+
+	@Override
+	public void setIntHeader(String name, int value)
+	{
+		if(isContentLength(name))
+		{
+			setContentLength(value);
+			return;
+		}
+
+		super.setIntHeader(name, value);
+	}
+
+	@Override
+	public void addIntHeader(String name, int value)
+	{
+		if(isContentLength(name))
+		{
+			setContentLength(value);
+			return;
+		}
+
+		super.addIntHeader(name, value);
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException
+	{
+		this.bypass = true;
+		this.count = 0;
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException
+	{
+		this.bypass = true;
+		this.count = 0;
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException
+	{
+		this.bypass = true;
+		this.count = 0;
+		super.sendRedirect(location);
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException
+	{
+		if(this.writer != null)
+		{
+			throw new IllegalStateException("getWriter() has already been called on this response.");
+		}
+
+		if(this.outputStream == null)
+		{
+			this.outputStream = new ServletOutputStream() {
+				private final byte[]	single	= new byte[1];
+
+				@Override
+				public void write(int b) throws IOException
+				{
+					single[0] = (byte) b;
+					CompressionResponse.this.write(single, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException
+				{
+					CompressionResponse.this.write(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException
+				{
+					flushContent();
+				}
+
+				@Override
+				public void close() throws IOException
+				{
+					finish();
+				}
+			};
+		}
+
+		return this.outputStream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException
+	{
+		if(this.writer == null)
+		{
+			if(this.outputStream != null)
+			{
+				throw new IllegalStateException("getOutputStream() has already been called on this response.");
+			}
+
+			this.writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			// getOutputStream() 只用于创建 Writer 的底层输出
+			this.outputStream = null;
+		}
+
+		return this.writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException
+	{
+		flushContent();
+		super.flushBuffer();
+	}
+
+	@Override
+	public void reset()
+	{
+		super.reset();
+		restart();
+		this.mode = UNDECIDED;
+		this.contentLength = -1;
+	}
+
+	@Override
+	public void resetBuffer()
+	{
+		super.resetBuffer();
+		this.count = 0;
+
+		// 底层缓冲区中已经写入的 gzip 文件头和压缩数据已被清除，重新开始压缩
+		if(this.mode == COMPRESS)
+		{
+			restart();
+			this.deflater = Compression.borrow(this.encoding);
+			try
+			{
+				startStream();
+			} catch(IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private void restart()
+	{
+		this.count = 0;
+		this.crc = null;
+		releaseDeflater();
+	}
+}
@@ -0,0 +1,188 @@
+package com.sparkweb.web;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 并发请求数限制 <br>
+ * 超过限制的请求直接返回 503，不进行参数绑定、不执行拦截器，避免一个慢接口在流量高峰时占满所有的容器线程。
+ * <ul>
+ * <li>固定限制：同时处理的请求数不超过设定值；</li>
+ * <li>自适应限制（AIMD）：请求耗时明显高于平时的耗时时按比例降低限制，否则在并发接近限制时逐步提高，
+ * 限制在 [minLimit, maxLimit] 之间变化。</li>
+ * </ul>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public abstract class ConcurrencyLimiter
+{
+	final AtomicInteger		inFlight	= new AtomicInteger(0);
+
+	ConcurrencyLimiter() {
+	}
+
+	/**
+	 * 固定的并发限制
+	 */
+	public static ConcurrencyLimiter fixed(int limit)
+	{
+		return new FixedLimiter(limit);
+	}
+
+	/**
+	 * 根据请求耗时自适应调整的并发限制，初始为 maxLimit
+	 */
+	public static ConcurrencyLimiter adaptive(int minLimit, int maxLimit)
+	{
+		return new AimdLimiter(minLimit, maxLimit);
+	}
+
+	/**
+	 * 拒绝超过并发限制的请求：503 Service Unavailable，并建议客户端 1 秒后重试
+	 */
+	public static void reject(HttpServletResponse res) throws IOException
+	{
+		res.setHeader("Retry-After", "1");
+		res.sendError(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	/**
+	 * 当前的并发限制
+	 */
+	public abstract int limit();
+
+	/**
+	 * 尝试占用一个并发数
+	 *
+	 * @return 已经达到并发限制时返回 false
+	 */
+	public boolean tryAcquire()
+	{
+		for(;;)
+		{
+			int current = this.inFlight.get();
+			if(current >= limit())
+			{
+				return false;
+			}
+
+			if(this.inFlight.compareAndSet(current, current + 1))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 请求处理结束，释放占用的并发数
+	 *
+	 * @param startNanos 请求开始处理的时间（System.nanoTime()）
+	 */
+	public void release(long startNanos)
+	{
+		this.inFlight.decrementAndGet();
+	}
+
+	/**
+	 * 正在处理的请求数
+	 */
+	public int inFlight()
+	{
+		return this.inFlight.get();
+	}
+
+	private static final class FixedLimiter extends ConcurrencyLimiter
+	{
+		private final int	limit;
+
+		FixedLimiter(int limit) {
+			this.limit = Math.max(limit, 1);
+		}
+
+		@Override
+		public int limit()
+		{
+			return this.limit;
+		}
+	}
+
+	private static final class AimdLimiter extends ConcurrencyLimiter
+	{
+		// 耗时超过平时耗时的多少倍时认为已经过载
+		private static final double	TOLERANCE	= 2.0;
+		// 过载时限制降低的比例
+		private static final double	BACKOFF		= 0.9;
+		// 平时耗时的平滑系数
+		private static final double	SMOOTHING	= 0.05;
+		// 过载时的耗时计入平时耗时的系数，持续变慢几百个请求之后才会被当作平时耗时
+		private static final double	DRIFT		= 0.002;
+
+		private final int			minLimit;
+		private final int			maxLimit;
+
+		private volatile int		limit;
+		// 平时的请求耗时（纳秒），指数加权平均
+		private double				baselineRtt	= 0;
+		// 自上次提高限制以来处理完成的请求数
+		private int					successes	= 0;
+		// 上次降低限制的时间，一个请求耗时内最多降低一次
+		private long				lastBackoff;
+
+		AimdLimiter(int minLimit, int maxLimit) {
+			this.maxLimit = Math.max(maxLimit, 1);
+			this.minLimit = Math.min(Math.max(minLimit, 1), this.maxLimit);
+			this.limit = this.maxLimit;
+			this.lastBackoff = System.nanoTime();
+		}
+
+		@Override
+		public int limit()
+		{
+			return this.limit;
+		}
+
+		@Override
+		public void release(long startNanos)
+		{
+			int current = this.inFlight.getAndDecrement();
+			long now = System.nanoTime();
+			long rtt = now - startNanos;
+
+			synchronized(this)
+			{
+				if(this.baselineRtt == 0)
+				{
+					this.baselineRtt = rtt;
+					return;
+				}
+
+				if(rtt > this.baselineRtt * TOLERANCE)
+				{
+					// 耗时持续变长时平时耗时也会缓慢升高，限制不会一直停留在最小值
+					this.baselineRtt += (rtt - this.baselineRtt) * DRIFT;
+
+					// 过载：按比例降低限制
+					if(now - this.lastBackoff > rtt)
+					{
+						this.limit = Math.max(this.minLimit, (int) (this.limit * BACKOFF));
+						this.lastBackoff = now;
+					}
+					this.successes = 0;
+					return;
+				}
+
+				this.baselineRtt += (rtt - this.baselineRtt) * SMOOTHING;
+
+				// 并发接近限制时，每处理完 limit 个请求提高 1
+				if(current * 2 >= this.limit && ++this.successes >= this.limit)
+				{
+					this.limit = Math.min(this.maxLimit, this.limit + 1);
+					this.successes = 0;
+				}
+			}
+		}
+	}
+}
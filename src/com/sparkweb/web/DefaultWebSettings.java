@@ -1,5 +1,9 @@
 package com.sparkweb.web;
 
+import java.util.concurrent.ExecutorService;
+
+import com.sparkweb.cache.CacheProvider;
+import com.sparkweb.web.metrics.MetricsRegistry;
 import com.sparkweb.web.view.ViewResolver;
 
 /**
@@ -8,10 +12,16 @@ import com.sparkweb.web.view.ViewResolver;
  * @author yswang
  * @version 1.0
  */
-public class DefaultWebSettings implements WebSettings
+public class DefaultWebSettings implements ExtendedWebSettings
 {
 	final static String ENCODING = "utf-8";
 	final static String JSONP_CALLBACK_NAME = "callback";
+	final static int COMPRESSION_THRESHOLD = 1024;
+	final static long ASYNC_TIMEOUT = 30000L;
+	final static int OFFLOAD_THREADS = 64;
+	final static int OFFLOAD_QUEUE_SIZE = 256;
+	final static double TRACE_SAMPLE_RATE = 1.0;
+	final static int MAX_FORM_SIZE = 2 * 1024 * 1024;
 	
 	public String encoding()
 	{
@@ -33,6 +43,11 @@ public class DefaultWebSettings implements WebSettings
 		return new String[0];
 	}
 	
+	public boolean serveStaticAssets()
+	{
+		return false;
+	}
+	
 	public String[] staticAssetsPath()
 	{
 		return new String[0];
@@ -48,6 +63,81 @@ public class DefaultWebSettings implements WebSettings
 		return null;
 	}
 	
+	public CacheProvider cacheProvider()
+	{
+		return null;
+	}
+	
+	public boolean etag()
+	{
+		return false;
+	}
+	
+	public boolean compression()
+	{
+		return false;
+	}
+	
+	public int compressionThreshold()
+	{
+		return COMPRESSION_THRESHOLD;
+	}
+	
+	public long asyncTimeout()
+	{
+		return ASYNC_TIMEOUT;
+	}
+	
+	public ExecutorService offloadExecutor()
+	{
+		return null;
+	}
+	
+	public int offloadThreads()
+	{
+		return OFFLOAD_THREADS;
+	}
+	
+	public int offloadQueueSize()
+	{
+		return OFFLOAD_QUEUE_SIZE;
+	}
+	
+	public int concurrencyLimit()
+	{
+		return 0;
+	}
+	
+	public boolean adaptiveConcurrency()
+	{
+		return false;
+	}
+	
+	public MetricsRegistry metricsRegistry()
+	{
+		return null;
+	}
+	
+	public String metricsPath()
+	{
+		return null;
+	}
+	
+	public long slowRequestThreshold()
+	{
+		return 0;
+	}
+	
+	public double traceSampleRate()
+	{
+		return TRACE_SAMPLE_RATE;
+	}
+	
+	public int maxFormSize()
+	{
+		return MAX_FORM_SIZE;
+	}
+	
 	public String jsonpCallbackName()
 	{
 		return JSONP_CALLBACK_NAME;
@@ -0,0 +1,142 @@
+package com.sparkweb.web;
+
+import java.util.concurrent.ExecutorService;
+
+import com.sparkweb.cache.CacheProvider;
+import com.sparkweb.web.metrics.MetricsRegistry;
+
+/**
+ * WebSettings 的扩展设置（可选）：静态文件、缓存、ETag、响应压缩、异步和 @Offload Action、并发限制、请求指标和慢请求跟踪等。
+ * <br> 只实现了 {@link WebSettings} 的设置类仍然可以使用，这些设置取 {@link DefaultWebSettings} 的默认值；
+ * 需要修改时继承 DefaultWebSettings 或者实现该接口。
+ * 
+ * @author yswang
+ * @version 1.0
+ */
+public interface ExtendedWebSettings extends WebSettings
+{
+	/**
+	 * 是否由Sparkweb直接响应 staticAssetsPath() 匹配的静态文件请求。<br>
+	 * 开启后较小的热点文件会连同 ETag 和 gzip 压缩结果缓存在内存中，文件修改后自动重新加载；
+	 * 否则静态文件请求交由Web容器处理。
+	 * 
+	 * @return
+	 */
+	boolean serveStaticAssets();
+	
+	/**
+	 * 缓存实现，用于 @CacheFor 缓存Action的响应结果。
+	 * <br> 返回 null 时使用内置的进程内缓存 {@link com.sparkweb.cache.LocalCacheProvider}
+	 * 
+	 * @return
+	 */
+	CacheProvider cacheProvider();
+	
+	/**
+	 * 是否为文本类响应（text、html、json、xml）以及 @CacheFor 缓存的响应生成 ETag，
+	 * 并对携带 If-None-Match 的 GET/HEAD 请求返回 304 Not Modified。
+	 * 
+	 * @return
+	 */
+	boolean etag();
+	
+	/**
+	 * 是否开启响应压缩。<br>
+	 * 开启后根据请求的 Accept-Encoding 对文本类的响应内容（html、json、xml、js、css等）进行 gzip 或 deflate 压缩；
+	 * 已经设置了 Content-Encoding 的响应不会被重复压缩。
+	 * 
+	 * @return
+	 */
+	boolean compression();
+	
+	/**
+	 * 响应内容达到多少字节时才进行压缩，过小的响应压缩后收益很小。
+	 * 
+	 * @return
+	 */
+	int compressionThreshold();
+	
+	/**
+	 * 异步Action（Response.async(Promise)）的超时时间（毫秒），超时后以 TimeoutException 结束请求。<br>
+	 * 异步Action需要 RouteDispatcher 过滤器设置 &lt;async-supported&gt;true&lt;/async-supported&gt;，否则在容器线程上等待结果。
+	 * 
+	 * @return
+	 */
+	long asyncTimeout();
+	
+	/**
+	 * 执行 @Offload Action 的线程池。<br>
+	 * 返回 null 时使用内置的线程池：运行在支持虚拟线程的 JDK 上时使用虚拟线程，否则使用 offloadThreads() 大小的线程池。
+	 * 
+	 * @return
+	 */
+	ExecutorService offloadExecutor();
+	
+	/**
+	 * 内置线程池的线程数（使用虚拟线程时为同时执行的 @Offload Action 数）
+	 * 
+	 * @return
+	 */
+	int offloadThreads();
+	
+	/**
+	 * 等待执行的 @Offload Action 的最大数量，线程和等待队列都已满时请求直接返回 503
+	 * 
+	 * @return
+	 */
+	int offloadQueueSize();
+	
+	/**
+	 * 全局的最大并发请求数（不包括静态资源），超过限制的请求直接返回 503 和 Retry-After；0 表示不限制。<br>
+	 * 单个Action的并发限制参见 @ConcurrencyLimit。
+	 * 
+	 * @return
+	 */
+	int concurrencyLimit();
+	
+	/**
+	 * 是否根据请求耗时自适应调整全局的并发限制（AIMD），限制在 concurrencyLimit() 的 1/10 到 concurrencyLimit() 之间变化。
+	 * 
+	 * @return
+	 */
+	boolean adaptiveConcurrency();
+	
+	/**
+	 * 按路由记录请求数、出错数、正在处理的请求数和各个处理阶段的耗时分布；返回 null 时不记录。<br>
+	 * 使用内置的实现：<code>return new DefaultMetricsRegistry();</code>
+	 * 
+	 * @return
+	 */
+	MetricsRegistry metricsRegistry();
+	
+	/**
+	 * 以文本格式（Prometheus）输出请求指标的地址，比如：/__metrics；返回 null 时不提供。<br>
+	 * 需要同时配置 metricsRegistry()，该地址不做访问控制，需要自行限制访问。
+	 * 
+	 * @return
+	 */
+	String metricsPath();
+	
+	/**
+	 * 慢请求的阈值（毫秒）：被采样的请求总耗时超过该值时，将各个处理阶段的耗时以 JSON 输出到日志；0 表示不跟踪。
+	 * 
+	 * @return
+	 */
+	long slowRequestThreshold();
+	
+	/**
+	 * 慢请求跟踪的采样率（0 ~ 1），1 表示跟踪所有请求
+	 * 
+	 * @return
+	 */
+	double traceSampleRate();
+	
+	/**
+	 * 由Sparkweb直接读取并解析的 application/x-www-form-urlencoded 请求体的最大字节数，
+	 * 更大的请求体仍由Web容器解析（受容器的 maxPostSize 限制）；0 表示都由容器解析。
+	 * 
+	 * @return
+	 */
+	int maxFormSize();
+	
+}
@@ -0,0 +1,96 @@
+package com.sparkweb.web;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * application/x-www-form-urlencoded 请求封装 <br>
+ * 请求体由 {@link UrlEncodedParser} 解析一次，容器不再解析请求参数；
+ * 参数中URL查询参数在前，请求体参数在后，与 Servlet 规范一致。
+ * <br> 已经读取的请求体由 getInputStream()、getReader() 重新提供，比如用于校验请求体的签名，
+ * 或者传递给后续的过滤器和Servlet。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class FormHttpRequest extends HttpServletRequestWrapper
+{
+	private final Map<String, String[]>	params;
+	private final byte[]				body;
+	private final int					length;
+
+	FormHttpRequest(HttpServletRequest request, Map<String, String[]> params, byte[] body, int length) {
+		super(request);
+		this.params = Collections.unmodifiableMap(params);
+		this.body = body;
+		this.length = length;
+	}
+
+	@Override
+	public ServletInputStream getInputStream()
+	{
+		final ByteArrayInputStream in = new ByteArrayInputStream(this.body, 0, this.length);
+
+		return new ServletInputStream() {
+			@Override
+			public int read()
+			{
+				return in.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len)
+			{
+				return in.read(b, off, len);
+			}
+
+			@Override
+			public int available()
+			{
+				return in.available();
+			}
+		};
+	}
+
+	@Override
+	public BufferedReader getReader() throws UnsupportedEncodingException
+	{
+		String encoding = getCharacterEncoding();
+		return new BufferedReader(new InputStreamReader(getInputStream(), encoding != null ? encoding : "ISO-8859-1"));
+	}
+
+	@Override
+	public String getParameter(String name)
+	{
+		String[] values = this.params.get(name);
+		return values != null && values.length > 0 ? values[0] : null;
+	}
+
+	@Override
+	public String[] getParameterValues(String name)
+	{
+		String[] values = this.params.get(name);
+		return values != null ? values.clone() : null;
+	}
+
+	@Override
+	public Map<String, String[]> getParameterMap()
+	{
+		return this.params;
+	}
+
+	@Override
+	public Enumeration<String> getParameterNames()
+	{
+		return Collections.enumeration(this.params.keySet());
+	}
+}
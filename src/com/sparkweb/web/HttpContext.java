@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.sparkweb.exception.SparkException;
+import com.sparkweb.web.metrics.RequestTrace;
 import com.sparkweb.web.multipart.MultipartHttpRequest;
 import com.sparkweb.web.router.MatchedRoute;
 
@@ -29,6 +30,10 @@ public final class HttpContext
 
 	private Request									request;
 	private Response								response;
+	// 异步请求的状态，同步请求为 null
+	private AsyncDispatch							async;
+	
+	private RequestTrace							trace;
 
 	private static String							upload_tmp_path;
 
@@ -70,7 +75,8 @@ public final class HttpContext
 		res.setHeader("P3P", "CP='IDC DSP COR ADM DEVi TAIi PSA PSD IVAi CONi HIS OUR IND CNT'");
 
 		HttpContext httpContext = new HttpContext();
-		httpContext.request = new Request(autoWrapMultipartRequest(req));
+		// multipart/form-data 请求在第一次访问请求参数时才封装
+		httpContext.request = new Request(req);
 		httpContext.response = new Response(res);
 
 		CURRENT_HTTP_CONTEXT.set(httpContext);
@@ -110,6 +116,70 @@ public final class HttpContext
 		this.request.setMatchedRoute(mRoute);
 	}
 	
+	/**
+	 * 当前请求的慢请求跟踪记录，没有被采样时返回 null
+	 */
+	public RequestTrace trace()
+	{
+		return this.trace;
+	}
+	
+	public void trace(RequestTrace trace)
+	{
+		this.trace = trace;
+	}
+	
+	/**
+	 * 将当前请求转为异步请求（Servlet 3.0），释放容器线程，Promise 完成后执行 continuation 继续处理请求
+	 * 
+	 * @param promise 异步Action的执行结果
+	 * @param continuation Promise 完成后的处理
+	 * @return 请求不支持异步处理（过滤器没有设置 async-supported）时返回 false
+	 */
+	public boolean startAsync(Promise promise, Promise.Continuation continuation)
+	{
+		HttpServletRequest req = this.request.servletRequest();
+		if(this.async != null || !req.isAsyncSupported())
+		{
+			return false;
+		}
+
+		this.async = new AsyncDispatch(req, promise, continuation, SparkConfig.getConfig().extendedSettings().asyncTimeout());
+		return true;
+	}
+
+	AsyncDispatch async()
+	{
+		return this.async;
+	}
+
+	/**
+	 * 将 HttpContext 绑定到当前线程，用于在完成异步请求的线程上继续处理请求
+	 * 
+	 * @return 当前线程原来绑定的 HttpContext
+	 */
+	HttpContext bind()
+	{
+		HttpContext previous = CURRENT_HTTP_CONTEXT.get();
+		CURRENT_HTTP_CONTEXT.set(this);
+		return previous;
+	}
+
+	/**
+	 * 恢复当前线程原来绑定的 HttpContext
+	 */
+	void unbind(HttpContext previous)
+	{
+		if(previous != null && previous != this)
+		{
+			CURRENT_HTTP_CONTEXT.set(previous);
+		}
+		else if(CURRENT_HTTP_CONTEXT.get() == this)
+		{
+			CURRENT_HTTP_CONTEXT.remove();
+		}
+	}
+	
 	public static String getWebRootPath()
 	{
 		String root = HttpContext.class.getResource("/").getFile();
@@ -152,6 +222,7 @@ public final class HttpContext
 
 		this.request = null;
 		this.response = null;
+		this.trace = null;
 
 		CURRENT_HTTP_CONTEXT.set(null);
 		CURRENT_HTTP_CONTEXT.remove();
@@ -189,7 +260,7 @@ public final class HttpContext
 	/**
 	 * 自动封装multipart request请求，将自动上传请求中的文件到定义的上传文件临时目录。
 	 */
-	private static HttpServletRequest autoWrapMultipartRequest(HttpServletRequest req)
+	static HttpServletRequest autoWrapMultipartRequest(HttpServletRequest req)
 	{
 		if(!isMultipartRequest(req) || req instanceof MultipartHttpRequest)
 		{
@@ -42,6 +42,7 @@ public final class HttpStatus
 	public static final int	UNSUPPORTED_MEDIA_TYPE			= 415;
 	public static final int	REQUESTED_RANGE_NOT_SATISFIABLE	= 416;
 	public static final int	EXPECTATION_FAILED				= 417;
+	public static final int	TOO_MANY_REQUESTS				= 429;
 	public static final int	INTERNAL_ERROR					= 500;
 	public static final int	NOT_IMPLEMENTED					= 501;
 	public static final int	BAD_GATEWAY						= 502;
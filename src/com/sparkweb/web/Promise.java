@@ -0,0 +1,181 @@
+package com.sparkweb.web;
+
+import java.util.concurrent.TimeUnit;
+
+import com.sparkweb.web.result.NoResult;
+import com.sparkweb.web.result.Result;
+
+/**
+ * 异步Action的执行结果 <br>
+ * Action 中创建 Promise，将耗时的操作交给其它线程执行，然后调用 Response.async(Promise) 释放容器线程；
+ * 其它线程完成后调用 complete(Result)、fail(Throwable) 或 resolve(Runnable) 结束请求，
+ * 之后 @After、结果渲染和 @Finally 在完成 Promise 的线程上继续执行。
+ * <p>
+ * 完成 Promise 的线程上没有绑定 HttpContext，需要的 Request、Response 应该由 Action 显式传递。
+ *
+ * <pre>
+ * final Promise promise = new Promise();
+ * executor.execute(new Runnable() {
+ *     public void run() {
+ *         promise.complete(new RenderJson(service.query()));
+ *     }
+ * });
+ * response.async(promise);
+ * </pre>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class Promise
+{
+	private Result		result;
+	private Throwable	cause;
+	private boolean		done		= false;
+	private Runnable	listener;
+
+	/**
+	 * 使用结果完成
+	 *
+	 * @param result 响应结果，null 表示没有需要渲染的结果
+	 * @return 已经完成过时返回 false
+	 */
+	public boolean complete(Result result)
+	{
+		return done(result != null ? result : new NoResult(), null);
+	}
+
+	/**
+	 * 使用异常结束，异常会交给 @Catch、@Finally 拦截器处理
+	 *
+	 * @param cause 异常
+	 * @return 已经完成过时返回 false
+	 */
+	public boolean fail(Throwable cause)
+	{
+		if(cause instanceof Result)
+		{
+			return complete((Result) cause);
+		}
+
+		return done(null, cause != null ? cause : new NullPointerException("cause"));
+	}
+
+	/**
+	 * 执行 action，使用其抛出的 Result（如 response.json(o)）完成，
+	 * 抛出其它异常时以该异常结束，正常返回时没有需要渲染的结果
+	 *
+	 * @param action 需要执行的操作
+	 * @return 已经完成过时返回 false
+	 */
+	public boolean resolve(Runnable action)
+	{
+		try
+		{
+			action.run();
+		} catch(Result result)
+		{
+			return complete(result);
+		} catch(Throwable e)
+		{
+			return fail(e);
+		}
+
+		return complete(null);
+	}
+
+	public synchronized boolean isDone()
+	{
+		return this.done;
+	}
+
+	/**
+	 * 完成时的结果，以异常结束时为 null
+	 */
+	public synchronized Result result()
+	{
+		return this.result;
+	}
+
+	/**
+	 * 结束时的异常，正常完成时为 null
+	 */
+	public synchronized Throwable cause()
+	{
+		return this.cause;
+	}
+
+	/**
+	 * 等待完成
+	 *
+	 * @param timeout 最长等待时间（毫秒）
+	 * @return 在等待时间内完成时返回 true
+	 */
+	public synchronized boolean await(long timeout) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while(!this.done)
+		{
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if(remaining <= 0)
+			{
+				return false;
+			}
+
+			wait(remaining);
+		}
+
+		return true;
+	}
+
+	/**
+	 * 设置完成时的回调，已经完成时立即在当前线程上执行
+	 */
+	void onDone(Runnable listener)
+	{
+		synchronized(this)
+		{
+			if(!this.done)
+			{
+				this.listener = listener;
+				return;
+			}
+		}
+
+		listener.run();
+	}
+
+	private boolean done(Result result, Throwable cause)
+	{
+		Runnable _listener;
+		synchronized(this)
+		{
+			if(this.done)
+			{
+				return false;
+			}
+
+			this.result = result;
+			this.cause = cause;
+			this.done = true;
+			_listener = this.listener;
+			this.listener = null;
+			notifyAll();
+		}
+
+		// 在锁之外执行回调，回调中会继续处理请求
+		if(_listener != null)
+		{
+			_listener.run();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Promise 完成后继续处理请求
+	 */
+	public interface Continuation
+	{
+		void resume(Promise promise) throws Throwable;
+	}
+}
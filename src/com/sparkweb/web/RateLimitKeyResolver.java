@@ -0,0 +1,19 @@
+package com.sparkweb.web;
+
+/**
+ * @RateLimit 限流的key解析器，同一个key的请求共享同一个令牌桶。<br>
+ * 实现类需要有无参的构造方法，并且是线程安全的。
+ * 
+ * @author yswang
+ * @version 1.0
+ */
+public interface RateLimitKeyResolver
+{
+	/**
+	 * 解析当前请求的限流key
+	 * 
+	 * @param request 当前请求
+	 * @return 限流key，返回 null 时不限流
+	 */
+	String resolve(final Request request);
+}
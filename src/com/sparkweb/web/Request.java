@@ -3,8 +3,8 @@ package com.sparkweb.web;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -19,8 +19,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import com.sparkweb.binding.Binder;
+import com.sparkweb.binding.ParamNode;
+import com.sparkweb.binding.RootParamNode;
 import com.sparkweb.exception.SparkException;
 import com.sparkweb.exception.UnexpectedException;
+import com.sparkweb.util.NumberParser;
 import com.sparkweb.web.multipart.MultipartHttpRequest;
 import com.sparkweb.web.multipart.UploadedFile;
 import com.sparkweb.web.router.MatchedRoute;
@@ -33,15 +36,23 @@ import com.sparkweb.web.router.MatchedRoute;
  */
 public final class Request
 {
+	private static final String		FORM_CONTENT_TYPE	= "application/x-www-form-urlencoded";
+
 	private HttpServletRequest		servletRequest	= null;
 	private MatchedRoute			matchedRoute	= null;
-	private Map<String, String[]>	queryParamMap	= new HashMap<String, String[]>(0);
+	// URL查询参数，首次访问时解析
+	private Map<String, String[]>	queryParamMap	= null;
+	// 请求参数转换后的参数树，同一个请求中的所有参数绑定共享使用
+	private RootParamNode			rootParamNode	= null;
+	// 请求路径，首次访问时计算
+	private String					path			= null;
+	// multipart/form-data、application/x-www-form-urlencoded 请求在首次访问请求参数时才解析
+	private boolean					paramsResolved	= false;
 
 	// private Map<String, Object> flashParams = new HashMap<String, Object>();
 
 	protected Request(HttpServletRequest req) {
 		this.servletRequest = req;
-		this.queryParamMap = parseQueryString(req.getQueryString());
 	}
 
 	/**
@@ -52,7 +63,7 @@ public final class Request
 	 */
 	public String param(String name)
 	{
-		return this.servletRequest.getParameter(name);
+		return paramRequest().getParameter(name);
 	}
 	
 	public int paramInt(String name, int defaultValue)
@@ -62,13 +73,7 @@ public final class Request
 			return defaultValue;
 		}
 		
-		try
-		{
-			return Integer.parseInt(param(name));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseInt(param(name), defaultValue);
 	}
 	
 	public long paramLong(String name, long defaultValue)
@@ -78,13 +83,7 @@ public final class Request
 			return defaultValue;
 		}
 		
-		try
-		{
-			return Long.parseLong(param(name));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseLong(param(name), defaultValue);
 	}
 
 	/**
@@ -96,7 +95,7 @@ public final class Request
 	 */
 	public String[] params(String name)
 	{
-		return this.servletRequest.getParameterValues(name);
+		return paramRequest().getParameterValues(name);
 	}
 
 	/**
@@ -106,7 +105,7 @@ public final class Request
 	 */
 	public Map<String, String[]> params()
 	{
-		return this.servletRequest.getParameterMap();
+		return paramRequest().getParameterMap();
 	}
 
 	/**
@@ -128,13 +127,7 @@ public final class Request
 			return defaultValue;
 		}
 		
-		try
-		{
-			return Integer.parseInt(queryParam(name));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseInt(queryParam(name), defaultValue);
 	}
 	
 	public long queryParamLong(String name, long defaultValue)
@@ -144,13 +137,7 @@ public final class Request
 			return defaultValue;
 		}
 		
-		try
-		{
-			return Long.parseLong(queryParam(name));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseLong(queryParam(name), defaultValue);
 	}
 
 	/**
@@ -172,6 +159,11 @@ public final class Request
 	 */
 	public Map<String, String[]> queryParams()
 	{
+		if(this.queryParamMap == null)
+		{
+			this.queryParamMap = parseQueryString(this.servletRequest.getQueryString());
+		}
+		
 		return this.queryParamMap;
 	}
 
@@ -201,13 +193,7 @@ public final class Request
 			return defaultValue;
 		}
 		
-		try
-		{
-			return Integer.parseInt(pathParam(name));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseInt(pathParam(name), defaultValue);
 	}
 	
 	public long pathParamLong(String name, long defaultValue)
@@ -217,13 +203,7 @@ public final class Request
 			return defaultValue;
 		}
 		
-		try
-		{
-			return Long.parseLong(pathParam(name));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseLong(pathParam(name), defaultValue);
 	}
 
 	/**
@@ -279,24 +259,12 @@ public final class Request
 	
 	public int pathSplatInt(int index, int defaultValue)
 	{
-		try
-		{
-			return Integer.parseInt(pathSplat(index));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseInt(pathSplat(index), defaultValue);
 	}
 	
 	public long pathSplatLong(int index, long defaultValue)
 	{
-		try
-		{
-			return Long.parseLong(pathSplat(index));
-		} catch(NumberFormatException e)
-		{
-			return defaultValue;
-		}
+		return NumberParser.parseLong(pathSplat(index), defaultValue);
 	}
 
 	/**
@@ -408,8 +376,10 @@ public final class Request
 	{
 		try
 		{
-			this.servletRequest.getRequestDispatcher(url).forward(this.servletRequest,
-					HttpContext.current().response().httpServletResponse());
+			HttpServletRequest req = paramRequest();
+			// 转发后请求路径会改变
+			this.path = null;
+			req.getRequestDispatcher(url).forward(req, HttpContext.current().response().httpServletResponse());
 		} 
 		catch(ServletException e)
 		{
@@ -539,6 +509,8 @@ public final class Request
 
 	/**
 	 * support raw request handed in by Jetty
+	 * <br> 不会读取请求体：请求参数还没有被访问时返回容器的请求；
+	 * 已经由框架解析了请求参数时返回封装后的请求，其 getInputStream() 仍然可以读取完整的请求体。
 	 * 
 	 * @return
 	 */
@@ -602,6 +574,11 @@ public final class Request
 
 	public String path()
 	{
+		if(this.path != null)
+		{
+			return this.path;
+		}
+		
 		String path = (String) this.servletRequest.getAttribute("javax.servlet.include.servlet_path");
 		String info = (String) this.servletRequest.getAttribute("javax.servlet.include.path_info");
 		
@@ -616,6 +593,7 @@ public final class Request
 			path = path + info;
 		}
 		
+		this.path = path;
 		return path;
 	}
 
@@ -682,7 +660,7 @@ public final class Request
 
 	public boolean isMultipart()
 	{
-		return this.servletRequest instanceof MultipartHttpRequest;
+		return paramRequest() instanceof MultipartHttpRequest;
 	}
 
 	/**
@@ -733,6 +711,9 @@ public final class Request
 		return this.servletRequest.getSession(createNew);
 	}
 
+	/**
+	 * 与 {@link #raw()} 相同，不会读取请求体
+	 */
 	public HttpServletRequest servletRequest()
 	{
 		return this.servletRequest;
@@ -743,6 +724,19 @@ public final class Request
 		return this.servletRequest.getServletContext();
 	}
 
+	/**
+	 * 获取由当前请求的所有参数转换成的参数树，首次访问时创建
+	 */
+	RootParamNode paramNode()
+	{
+		if(this.rootParamNode == null)
+		{
+			this.rootParamNode = ParamNode.convert(params());
+		}
+		
+		return this.rootParamNode;
+	}
+
 	/**
 	 * 设置当前匹配的路由
 	 * 
@@ -753,61 +747,112 @@ public final class Request
 		this.matchedRoute = mRoute;
 	}
 
+	/**
+	 * 第一次需要请求参数时：multipart/form-data 请求封装为 MultipartHttpRequest（保存上传的文件），
+	 * application/x-www-form-urlencoded 请求封装为 FormHttpRequest
+	 */
+	private HttpServletRequest paramRequest()
+	{
+		if(!this.paramsResolved)
+		{
+			this.paramsResolved = true;
+			HttpServletRequest req = HttpContext.autoWrapMultipartRequest(this.servletRequest);
+			this.servletRequest = req != this.servletRequest ? req : wrapFormRequest(req);
+		}
+		
+		return this.servletRequest;
+	}
+
 	/**
 	 * 将URL查询字符串解析为参数键值对
 	 */
 	private Map<String, String[]> parseQueryString(String queryStr)
 	{
-		if(queryStr == null || queryStr.trim().length() == 0)
+		return UrlEncodedParser.parse(queryStr, encoding());
+	}
+
+	/**
+	 * 由框架直接读取并解析 application/x-www-form-urlencoded 的 POST 请求体，避免容器再解析一次 <br>
+	 * 请求体已经被读取（比如之前的过滤器已经访问过请求参数或者调用过 getReader()）、长度未知或者过大、
+	 * 没有读取到完整的请求体时仍由容器解析。
+	 */
+	private HttpServletRequest wrapFormRequest(HttpServletRequest req)
+	{
+		String contentType = req.getContentType();
+		int length = req.getContentLength();
+		if(length <= 0 || length > maxFormSize() || contentType == null 
+				|| !"POST".equalsIgnoreCase(req.getMethod()) 
+				|| !contentType.regionMatches(true, 0, FORM_CONTENT_TYPE, 0, FORM_CONTENT_TYPE.length()))
 		{
-			return Collections.emptyMap();
+			return req;
 		}
-
-		String[] params = queryStr.split("&");
-		if(params == null || params.length == 0)
+		
+		InputStream in;
+		try
 		{
-			return Collections.emptyMap();
+			in = req.getInputStream();
+		} catch(IllegalStateException e)
+		{
+			// getReader() has already been called
+			return req;
+		} catch(IOException e)
+		{
+			throw new SparkException(e);
 		}
-
-		Map<String, String[]> paramMap = new HashMap<String, String[]>(params.length);
-		for(String param : params)
+		
+		byte[] data = new byte[length];
+		int read = 0;
+		try
 		{
-			String[] kv = param.split("=");
-			String[] v = null;
-
-			if(!paramMap.containsKey(kv[0]))
+			int n;
+			while(read < length && (n = in.read(data, read, length - read)) != -1)
 			{
-				v = new String[1];
-				v[0] = decodeParam(kv.length > 1 ? kv[1] : "");
+				read += n;
 			}
-			else
+		} catch(IOException e)
+		{
+			throw new SparkException(e);
+		}
+		
+		if(read < length)
+		{
+			return req;
+		}
+		
+		Map<String, String[]> formParams = UrlEncodedParser.parse(data, read, encoding());
+		Map<String, String[]> queryParams = queryParams();
+		if(queryParams.isEmpty())
+		{
+			return new FormHttpRequest(req, formParams, data, read);
+		}
+		
+		// URL查询参数在前
+		Map<String, String[]> params = new HashMap<String, String[]>(queryParams);
+		for(Map.Entry<String, String[]> en : formParams.entrySet())
+		{
+			String[] values = params.get(en.getKey());
+			if(values == null)
 			{
-				v = new String[paramMap.get(kv[0]).length + 1];
-				System.arraycopy(paramMap.get(kv[0]), 0, v, 0, v.length - 1);
-				v[v.length - 1] = decodeParam(kv.length > 1 ? kv[1] : "");
+				params.put(en.getKey(), en.getValue());
+				continue;
 			}
-
-			paramMap.put(kv[0], v);
+			
+			String[] merged = new String[values.length + en.getValue().length];
+			System.arraycopy(values, 0, merged, 0, values.length);
+			System.arraycopy(en.getValue(), 0, merged, values.length, en.getValue().length);
+			params.put(en.getKey(), merged);
 		}
-
-		return paramMap;
+		
+		return new FormHttpRequest(req, params, data, read);
 	}
-
+	
 	/**
-	 * 将使用UTF-8编码的URL参数内容进行解码
-	 * 
-	 * @param s
-	 * @return
+	 * 由框架解析的表单请求体的最大长度，更大的请求体仍由容器解析（受容器的 maxPostSize 限制）
 	 */
-	private String decodeParam(String s)
+	private static int maxFormSize()
 	{
-		try
-		{
-			return URLDecoder.decode(s, encoding());
-		} catch(UnsupportedEncodingException e)
-		{
-			return s;
-		}
+		ExtendedWebSettings settings = SparkConfig.getConfig().extendedSettings();
+		return settings != null ? settings.maxFormSize() : DefaultWebSettings.MAX_FORM_SIZE;
 	}
 
 	/**
@@ -6,11 +6,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
 
+import com.sparkweb.web.result.AsyncResult;
 import com.sparkweb.web.result.BadRequest;
 import com.sparkweb.web.result.Forbidden;
 import com.sparkweb.web.result.NoResult;
@@ -22,6 +24,7 @@ import com.sparkweb.web.result.RenderBinary;
 import com.sparkweb.web.result.RenderHtml;
 import com.sparkweb.web.result.RenderJson;
 import com.sparkweb.web.result.RenderJsonp;
+import com.sparkweb.web.result.RenderStream;
 import com.sparkweb.web.result.RenderText;
 import com.sparkweb.web.result.RenderXml;
 import com.sparkweb.web.result.Unauthorized;
@@ -160,6 +163,64 @@ public final class Response
 		throw new RenderBinary(file, name);
 	}
 	
+	/**
+	 * Return a 200 OK response whose body is written incrementally and flushed
+	 * to the client in chunks of 8KB
+	 * 
+	 * @param contentType The content type
+	 * @param writer Writes the body
+	 */
+	public void stream(String contentType, StreamWriter writer)
+	{
+		throw new RenderStream(contentType, writer, RenderStream.DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Return a 200 OK response whose body is written incrementally
+	 * 
+	 * @param contentType The content type
+	 * @param writer Writes the body
+	 * @param chunkSize The size of the chunks flushed to the client
+	 */
+	public void stream(String contentType, StreamWriter writer, int chunkSize)
+	{
+		throw new RenderStream(contentType, writer, chunkSize);
+	}
+	
+	/**
+	 * Return a 200 OK response with one record per line (CSV, NDJSON...),
+	 * flushed to the client in chunks of 8KB
+	 * 
+	 * @param contentType The content type
+	 * @param records The records, written with their toString()
+	 */
+	public void stream(String contentType, Iterator<?> records)
+	{
+		throw new RenderStream(contentType, records, RenderStream.DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Return a 200 OK response with one record per line (CSV, NDJSON...)
+	 * 
+	 * @param contentType The content type
+	 * @param records The records, written with their toString()
+	 * @param chunkSize The size of the chunks flushed to the client
+	 */
+	public void stream(String contentType, Iterator<?> records, int chunkSize)
+	{
+		throw new RenderStream(contentType, records, chunkSize);
+	}
+	
+	/**
+	 * Release the container thread, the response is completed later through the promise
+	 * 
+	 * @param promise The asynchronous result
+	 */
+	public void async(Promise promise)
+	{
+		throw new AsyncResult(promise);
+	}
+	
 	public void render(Object o, ResponseRender responseRender)
 	{
 		responseRender.render(o, HttpContext.current().request(), this);
@@ -363,4 +424,19 @@ public final class Response
 	{
 		return this.servletResponse;
 	}
+	
+	/**
+	 * 替换底层的 HttpServletResponse，用于在请求处理过程中对响应进行包装（比如：缓存响应内容）
+	 * 
+	 * @param res 新的 HttpServletResponse，通常是当前 HttpServletResponse 的包装
+	 */
+	public void httpServletResponse(HttpServletResponse res)
+	{
+		if(res == null)
+		{
+			throw new IllegalArgumentException("The HttpServletResponse must not be null!");
+		}
+		
+		this.servletResponse = res;
+	}
 }
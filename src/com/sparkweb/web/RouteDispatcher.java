@@ -16,11 +16,11 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.sparkweb.cache.CacheManager;
 import com.sparkweb.reflect.ConstructorAccess;
 import com.sparkweb.scanner.ClassScanner;
 import com.sparkweb.scanner.criteria.AnnotationCriteria;
 import com.sparkweb.scanner.criteria.ClassCriteria;
-import com.sparkweb.util.Matcher;
 import com.sparkweb.web.annotation.SparkwebSetting;
 import com.sparkweb.web.result.NoResult;
 import com.sparkweb.web.result.Result;
@@ -32,14 +32,19 @@ import com.sparkweb.web.router.RouteHandler;
  * @author yswang
  * @version 1.0
  */
-//@WebFilter(filterName="SparkwebDispatcher", urlPatterns="/*", dispatcherTypes={DispatcherType.REQUEST, DispatcherType.FORWARD, DispatcherType.ERROR})
+//@WebFilter(filterName="SparkwebDispatcher", urlPatterns="/*", asyncSupported=true, dispatcherTypes={DispatcherType.REQUEST, DispatcherType.FORWARD, DispatcherType.ERROR})
 public final class RouteDispatcher implements Filter
 {
 	private static final Log	log				= LogFactory.getLog(RouteDispatcher.class);
 
 	private ServletContext		servletContext	= null;
 	private WebSettings			webSetting		= new DefaultWebSettings();
+	private ExtendedWebSettings	extendedSetting	= new DefaultWebSettings();
 	private RouteHandler		routeHandler	= null;
+	private StaticAssetsMatcher	staticAssets	= null;
+	private StaticAssetHandler	staticHandler	= null;
+	private ConcurrencyLimiter	limiter			= null;
+	private String				metricsPath		= null;
 	
 	public void init(FilterConfig filterConfig) throws ServletException
 	{
@@ -67,6 +72,29 @@ public final class RouteDispatcher implements Filter
 		}
 		
 		SparkConfig.getConfig().setWebSettings(webSetting);
+		extendedSetting = SparkConfig.getConfig().extendedSettings();
+		
+		// static resources
+		staticAssets = new StaticAssetsMatcher(webSetting.staticAssetsPath());
+		if(extendedSetting.serveStaticAssets())
+		{
+			staticHandler = new StaticAssetHandler(servletContext, extendedSetting);
+		}
+		
+		// global concurrency limit
+		int concurrencyLimit = extendedSetting.concurrencyLimit();
+		if(concurrencyLimit > 0)
+		{
+			limiter = extendedSetting.adaptiveConcurrency() 
+						? ConcurrencyLimiter.adaptive(Math.max(1, concurrencyLimit / 10), concurrencyLimit) 
+						: ConcurrencyLimiter.fixed(concurrencyLimit);
+		}
+		
+		// metrics endpoint
+		if(SparkConfig.getConfig().metricsRegistry() != null && extendedSetting.metricsPath() != null)
+		{
+			metricsPath = extendedSetting.metricsPath();
+		}
 		
 		long stime = System.currentTimeMillis();
 
@@ -77,11 +105,7 @@ public final class RouteDispatcher implements Filter
 		log.info(String.format("------WebSpark parse routes cost: %d ms.", System.currentTimeMillis() - stime));
 		
 		// Initialize the cache system.
-		// TODO Cache supporting...
-		/*if(SparkConfig.getConfig().cacheProvider() != null)
-		{
-			CacheManager.init();
-		}*/
+		CacheManager.init(SparkConfig.getConfig().cacheProvider());
 	}
 
 	public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException,
@@ -98,20 +122,48 @@ public final class RouteDispatcher implements Filter
 			}
 			
 			// static resources
-			String[] staticAssetsPath = webSetting.staticAssetsPath();
-			if(staticAssetsPath != null && staticAssetsPath.length > 0)
+			if(staticAssets.matches(reqPath))
 			{
-				for(String staticPath : staticAssetsPath)
+				if(staticHandler == null || !staticHandler.handle(httpRequest, (HttpServletResponse) res, reqPath))
 				{
-					if(Matcher.match(staticPath, reqPath, false))
-					{
-						chain.doFilter(req, res);
-						return;
-					}
+					chain.doFilter(req, res);
+				}
+				return;
+			}
+			
+			// 请求指标
+			if(metricsPath != null && metricsPath.equals(reqPath))
+			{
+				renderMetrics((HttpServletResponse) res);
+				return;
+			}
+			
+			// 超过全局并发限制时直接返回 503
+			long admittedAt = 0;
+			if(limiter != null)
+			{
+				if(!limiter.tryAcquire())
+				{
+					ConcurrencyLimiter.reject((HttpServletResponse) res);
+					return;
+				}
+				admittedAt = System.nanoTime();
+			}
+			
+			// 根据 Accept-Encoding 对响应内容进行压缩
+			CompressionResponse compression = null;
+			HttpServletResponse httpResponse = (HttpServletResponse) res;
+			if(extendedSetting.compression() && !"HEAD".equalsIgnoreCase(httpRequest.getMethod()))
+			{
+				String encoding = Compression.negotiate(httpRequest.getHeader("Accept-Encoding"));
+				if(encoding != null)
+				{
+					compression = new CompressionResponse(httpResponse, encoding, extendedSetting.compressionThreshold());
+					httpResponse = compression;
 				}
 			}
 			
-			HttpContext httpContext = HttpContext.init(httpRequest, (HttpServletResponse) res, webSetting.encoding());
+			HttpContext httpContext = HttpContext.init(httpRequest, httpResponse, webSetting.encoding());
 	
 			try
 			{
@@ -121,7 +173,8 @@ public final class RouteDispatcher implements Filter
 				{
 					webSetting.rescueRouting(httpContext.request(), httpContext.response());
 					
-					chain.doFilter(req, res);
+					// rescueRouting 可能已经读取了请求参数，后续的过滤器使用封装后的请求，仍然可以获取请求参数和请求体
+					chain.doFilter(httpContext.request().servletRequest(), res);
 				}
 			}
 			// may throw `Result` exception from `rescueRouting(Request, Response)`
@@ -135,43 +188,142 @@ public final class RouteDispatcher implements Filter
 			// uncatched exception by any `@Catch`
 			catch(Throwable e)
 			{
-				try
+				handleException(e, httpContext);
+			}
+			finally
+			{
+				// 异步请求在 Promise 完成后才输出响应并清理 HttpContext
+				if(httpContext.async() != null)
 				{
-					webSetting.exception(e, httpContext.request(), httpContext.response());
-				} 
-				catch(Result result)
+					resumeAsync(httpContext, compression, admittedAt);
+				}
+				else
 				{
-					if(!(result instanceof NoResult))
+					endRequest(httpContext, compression, admittedAt);
+				}
+			}
+		} 
+		else 
+		{
+			chain.doFilter(req, res);
+		}
+	}
+	
+	
+	private void handleException(Throwable e, HttpContext httpContext)
+	{
+		try
+		{
+			webSetting.exception(e, httpContext.request(), httpContext.response());
+		} 
+		catch(Result result)
+		{
+			if(!(result instanceof NoResult))
+			{
+				result.apply(httpContext.request(), httpContext.response());
+			}
+		} 
+		catch(Throwable ex) 
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+	
+	/**
+	 * 在 Promise 完成的线程上继续处理异步请求，并在结束后完成 AsyncContext
+	 */
+	private void resumeAsync(final HttpContext httpContext, final CompressionResponse compression, final long admittedAt)
+	{
+		final AsyncDispatch async = httpContext.async();
+		
+		async.dispatchReturned(new Runnable() {
+			public void run()
+			{
+				// HttpContext 显式地绑定到完成 Promise 的线程上
+				HttpContext previous = httpContext.bind();
+				try
+				{
+					try
 					{
-						result.apply(httpContext.request(), httpContext.response());
+						async.resume();
 					}
-				} 
-				catch(Throwable ex) 
+					catch(Result result)
+					{
+						if(!(result instanceof NoResult))
+						{
+							result.apply(httpContext.request(), httpContext.response());
+						}
+					}
+					catch(Throwable e)
+					{
+						handleException(e, httpContext);
+					}
+					finally
+					{
+						endRequest(httpContext, compression, admittedAt);
+					}
+				}
+				catch(Throwable e)
 				{
-					throw new RuntimeException(ex);
+					log.error("Failed to complete the asynchronous request!", e);
+				}
+				finally
+				{
+					httpContext.unbind(previous);
+					async.complete();
 				}
 			}
-			finally
+		});
+	}
+	
+	private void renderMetrics(HttpServletResponse res) throws IOException
+	{
+		res.setContentType("text/plain; version=0.0.4; charset=utf-8");
+		res.setHeader("Cache-Control", "no-cache");
+		SparkConfig.getConfig().metricsRegistry().writeText(res.getWriter());
+	}
+	
+	private void endRequest(HttpContext httpContext, CompressionResponse compression, long admittedAt) throws IOException
+	{
+		try
+		{
+			// write out the buffered or compressed content
+			if(compression != null)
 			{
-				// destroy the `ThreadLocal<HttpContext>` after the current request ended
-				if(httpContext != null)
+				try
 				{
-					httpContext.destroy();
+					compression.finish();
+				}
+				finally
+				{
+					compression.releaseDeflater();
 				}
 			}
-		} 
-		else 
+		}
+		finally
 		{
-			chain.doFilter(req, res);
+			// destroy the `ThreadLocal<HttpContext>` after the current request ended
+			httpContext.destroy();
+			
+			if(limiter != null)
+			{
+				limiter.release(admittedAt);
+			}
 		}
 	}
 	
-	
 	public void destroy()
 	{
+		CacheManager.stop();
+		SparkConfig.getConfig().shutdownActionExecutor();
+		
 		this.servletContext = null;
 		this.webSetting = null;
 		this.routeHandler = null;
+		this.staticAssets = null;
+		this.staticHandler = null;
+		this.limiter = null;
+		this.metricsPath = null;
 		
 	}
 
@@ -2,6 +2,10 @@ package com.sparkweb.web;
 
 import javax.servlet.ServletContext;
 
+import com.sparkweb.cache.CacheProvider;
+import com.sparkweb.cache.LocalCacheProvider;
+import com.sparkweb.web.metrics.MetricsRegistry;
+import com.sparkweb.web.metrics.RequestTracer;
 import com.sparkweb.web.view.ViewResolver;
 
 /**
@@ -11,15 +15,31 @@ import com.sparkweb.web.view.ViewResolver;
 public final class SparkConfig
 {
 	private WebSettings webSettings;
+	private ExtendedWebSettings extendedSettings;
 	private JSONResolver jsonResolver;
 	private ViewResolver viewResolver;
+	private CacheProvider cacheProvider;
+	private volatile ActionExecutor actionExecutor;
+	private MetricsRegistry metricsRegistry;
+	private RequestTracer requestTracer;
 	private ServletContext servletContext;
 	
 	protected void setWebSettings(WebSettings settings)
 	{
 		this.webSettings = settings;
+		// 没有实现 ExtendedWebSettings 的设置类，扩展设置使用默认值
+		this.extendedSettings = settings instanceof ExtendedWebSettings 
+								? (ExtendedWebSettings) settings : new DefaultWebSettings();
 		this.jsonResolver = settings.jsonResolver();
 		this.viewResolver = settings.viewResolver();
+		
+		ExtendedWebSettings extended = this.extendedSettings;
+		// 只调用一次：cacheProvider() 的实现可能每次都创建新的实例
+		CacheProvider provider = extended.cacheProvider();
+		this.cacheProvider = provider != null ? provider : new LocalCacheProvider();
+		this.metricsRegistry = extended.metricsRegistry();
+		this.requestTracer = extended.slowRequestThreshold() > 0 && extended.traceSampleRate() > 0 
+								? new RequestTracer(extended.slowRequestThreshold(), extended.traceSampleRate()) : null;
 	}
 	
 	protected void setServletContext(ServletContext context)
@@ -32,6 +52,14 @@ public final class SparkConfig
 		return webSettings;
 	}
 	
+	/**
+	 * 扩展设置：WebSettings 实现了 ExtendedWebSettings 时就是 WebSettings 本身，否则为默认的设置
+	 */
+	public ExtendedWebSettings extendedSettings()
+	{
+		return extendedSettings;
+	}
+	
 	public JSONResolver jsonResolver()
 	{
 		if(this.jsonResolver == null)
@@ -52,6 +80,58 @@ public final class SparkConfig
 		return viewResolver;
 	}
 
+	public CacheProvider cacheProvider()
+	{
+		return cacheProvider;
+	}
+
+	/**
+	 * 请求指标，没有配置时返回 null
+	 */
+	public MetricsRegistry metricsRegistry()
+	{
+		return metricsRegistry;
+	}
+
+	/**
+	 * 慢请求跟踪，没有配置时返回 null
+	 */
+	public RequestTracer requestTracer()
+	{
+		return requestTracer;
+	}
+
+	/**
+	 * 执行 @Offload Action 的线程池，第一次使用时创建；创建之后的读取不加锁
+	 */
+	public ActionExecutor actionExecutor()
+	{
+		ActionExecutor executor = this.actionExecutor;
+		if(executor == null)
+		{
+			synchronized(this)
+			{
+				executor = this.actionExecutor;
+				if(executor == null)
+				{
+					executor = ActionExecutor.create(this.extendedSettings);
+					this.actionExecutor = executor;
+				}
+			}
+		}
+		
+		return executor;
+	}
+	
+	synchronized void shutdownActionExecutor()
+	{
+		if(this.actionExecutor != null)
+		{
+			this.actionExecutor.shutdown();
+			this.actionExecutor = null;
+		}
+	}
+
 	public ServletContext servletContext()
 	{
 		return servletContext;
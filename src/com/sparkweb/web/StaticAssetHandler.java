@@ -0,0 +1,267 @@
+package com.sparkweb.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.sparkweb.util.MimeTypes;
+import com.sparkweb.web.result.CachedAsset;
+import com.sparkweb.web.result.RenderBinary;
+
+/**
+ * 内置的静态文件处理 <br>
+ * 较小的热点文件连同 ETag 和 gzip 压缩结果缓存在内存中（同时限制文件个数和总字节数），
+ * 命中缓存时不加锁，超出限制时按最近访问时间淘汰（近似 LRU）；
+ * 每次响应前根据文件的修改时间和大小判断是否需要重新加载；
+ * 较大的文件、带有 Range 的请求直接通过 {@link RenderBinary#sendFile} 零拷贝输出。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class StaticAssetHandler
+{
+	// 单个文件超过该大小时不缓存
+	static final int							MAX_FILE_SIZE	= 1024 * 1024;
+	// 缓存的文件个数上限
+	static final int							MAX_ENTRIES		= 1000;
+	// 缓存的总字节数上限（包含 gzip 压缩结果）
+	static final long							MAX_TOTAL_SIZE	= 64L * 1024 * 1024;
+
+	private final ServletContext				servletContext;
+	private final ExtendedWebSettings			webSetting;
+
+	private final ConcurrentMap<String, Entry>	assets			= new ConcurrentHashMap<String, Entry>(64);
+	private final AtomicLong					totalSize		= new AtomicLong(0);
+	// 只在超出限制需要淘汰时使用，命中缓存时不需要
+	private final Object						evictLock		= new Object();
+
+	StaticAssetHandler(ServletContext servletContext, ExtendedWebSettings webSetting) {
+		this.servletContext = servletContext;
+		this.webSetting = webSetting;
+	}
+
+	/**
+	 * 响应静态文件请求
+	 *
+	 * @return 文件不存在或者不是 GET/HEAD 请求时返回 false，由Web容器继续处理
+	 */
+	boolean handle(HttpServletRequest req, HttpServletResponse res, String path) throws IOException
+	{
+		String method = req.getMethod();
+		if(!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method))
+		{
+			return false;
+		}
+
+		if(path.indexOf("..") != -1)
+		{
+			return false;
+		}
+
+		String upperPath = path.toUpperCase();
+		if(upperPath.startsWith("/WEB-INF") || upperPath.startsWith("/META-INF"))
+		{
+			return false;
+		}
+
+		String realPath = this.servletContext.getRealPath(path);
+		if(realPath == null)
+		{
+			return false;
+		}
+
+		File file = new File(realPath);
+		if(!file.isFile())
+		{
+			evict(realPath);
+			return false;
+		}
+
+		HttpContext httpContext = HttpContext.init(req, res, this.webSetting.encoding());
+		try
+		{
+			Request request = httpContext.request();
+			Response response = httpContext.response();
+
+			if(file.length() > MAX_FILE_SIZE || req.getHeader("Range") != null)
+			{
+				RenderBinary.sendFile(request, response, file, MimeTypes.getContentType(path));
+				return true;
+			}
+
+			CachedAsset asset = get(realPath);
+			if(asset == null || asset.isStale())
+			{
+				asset = load(file, path);
+				if(asset == null)
+				{
+					// 文件在读取过程中被修改
+					RenderBinary.sendFile(request, response, file, MimeTypes.getContentType(path));
+					return true;
+				}
+
+				put(realPath, asset);
+			}
+
+			asset.apply(request, response);
+			return true;
+		} finally
+		{
+			httpContext.destroy();
+		}
+	}
+
+	private CachedAsset load(File file, String path) throws IOException
+	{
+		long lastModified = file.lastModified();
+		int length = (int) file.length();
+		byte[] bytes = new byte[length];
+
+		InputStream is = new FileInputStream(file);
+		try
+		{
+			int count = 0;
+			while(count < length)
+			{
+				int n = is.read(bytes, count, length - count);
+				if(n < 0)
+				{
+					return null;
+				}
+				count += n;
+			}
+
+			if(is.read() != -1)
+			{
+				return null;
+			}
+		} finally
+		{
+			is.close();
+		}
+
+		String contentType = MimeTypes.getContentType(path);
+
+		byte[] gzipped = null;
+		if(this.webSetting.compression() && length >= this.webSetting.compressionThreshold()
+				&& MimeTypes.isCompressible(contentType))
+		{
+			gzipped = Compression.gzip(bytes);
+			// 压缩后没有变小的文件（已经压缩过的格式）不保留压缩结果
+			if(gzipped.length >= length)
+			{
+				gzipped = null;
+			}
+		}
+
+		return new CachedAsset(file, lastModified, contentType, bytes, gzipped);
+	}
+
+	private CachedAsset get(String key)
+	{
+		Entry entry = this.assets.get(key);
+		if(entry == null)
+		{
+			return null;
+		}
+
+		entry.lastAccess = System.nanoTime();
+		return entry.asset;
+	}
+
+	private void put(String key, CachedAsset asset)
+	{
+		Entry entry = new Entry(key, asset);
+		Entry old = this.assets.put(key, entry);
+		long size = this.totalSize.addAndGet(asset.size() - (old != null ? old.asset.size() : 0));
+
+		if(size > MAX_TOTAL_SIZE || this.assets.size() > MAX_ENTRIES)
+		{
+			shrink(entry);
+		}
+	}
+
+	/**
+	 * 按最近访问时间从旧到新淘汰，直到不超出限制；刚放入的文件不淘汰
+	 */
+	private void shrink(Entry added)
+	{
+		synchronized(this.evictLock)
+		{
+			List<Entry> entries = new ArrayList<Entry>(this.assets.values());
+			// 排序期间 lastAccess 仍会被并发修改，按照快照排序
+			for(Entry entry : entries)
+			{
+				entry.evictStamp = entry.lastAccess;
+			}
+			Collections.sort(entries, new Comparator<Entry>() {
+				public int compare(Entry e1, Entry e2)
+				{
+					long diff = e1.evictStamp - e2.evictStamp;
+					return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+				}
+			});
+
+			for(Entry eldest : entries)
+			{
+				if(this.totalSize.get() <= MAX_TOTAL_SIZE && this.assets.size() <= MAX_ENTRIES)
+				{
+					break;
+				}
+
+				if(eldest != added)
+				{
+					remove(eldest);
+				}
+			}
+		}
+	}
+
+	private void evict(String key)
+	{
+		Entry entry = this.assets.get(key);
+		if(entry != null)
+		{
+			remove(entry);
+		}
+	}
+
+	/**
+	 * 只有仍在缓存中的 entry 才计入总字节数的变化，并发的淘汰和替换不会重复扣减
+	 */
+	private void remove(Entry entry)
+	{
+		if(this.assets.remove(entry.key, entry))
+		{
+			this.totalSize.addAndGet(-entry.asset.size());
+		}
+	}
+
+	private static final class Entry
+	{
+		final String		key;
+		final CachedAsset	asset;
+		// 最近一次命中的时间（System.nanoTime()），用于近似 LRU 淘汰
+		volatile long		lastAccess;
+		// 淘汰时 lastAccess 的快照，只在 evictLock 内使用
+		long				evictStamp;
+
+		Entry(String key, CachedAsset asset) {
+			this.key = key;
+			this.asset = asset;
+			this.lastAccess = System.nanoTime();
+		}
+	}
+}
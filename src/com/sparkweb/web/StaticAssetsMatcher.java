@@ -0,0 +1,162 @@
+package com.sparkweb.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sparkweb.util.GlobMatcher;
+
+/**
+ * 静态资源路径匹配器 <br>
+ * 将 <code>WebSettings.staticAssetsPath()</code> 中的通配符表达式编译为一棵字符前缀树（不区分大小写）：
+ * <ul>
+ * <li>不含通配符的精确路径（/favicon.ico）和只在末尾含有 '*' 的前缀路径（/static/*）放入前缀树中，
+ * 一次匹配只需要沿着请求路径走一遍，与表达式的数量无关；</li>
+ * <li>其它形式的表达式（/*.js、/img/?/*）仍然逐个使用通配符进行匹配。</li>
+ * </ul>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class StaticAssetsMatcher
+{
+	private final Node			root	= new Node();
+	private final GlobMatcher[]	globs;
+	private final boolean		empty;
+
+	StaticAssetsMatcher(String[] patterns) {
+		List<GlobMatcher> _globs = new ArrayList<GlobMatcher>(4);
+		boolean hasPattern = false;
+
+		if(patterns != null)
+		{
+			for(String pattern : patterns)
+			{
+				if(pattern == null || pattern.length() == 0)
+				{
+					continue;
+				}
+
+				hasPattern = true;
+				GlobMatcher glob = GlobMatcher.compile(pattern, false);
+
+				if(glob.isExact())
+				{
+					insert(glob.literal()).exact = true;
+				}
+				else if(glob.isPrefix())
+				{
+					insert(glob.literal()).prefix = true;
+				}
+				else
+				{
+					_globs.add(glob);
+				}
+			}
+		}
+
+		this.globs = _globs.toArray(new GlobMatcher[_globs.size()]);
+		this.empty = !hasPattern;
+	}
+
+	/**
+	 * 判断请求路径是否是静态资源
+	 */
+	boolean matches(String path)
+	{
+		if(this.empty || path == null)
+		{
+			return false;
+		}
+
+		Node node = this.root;
+		for(int i = 0, len = path.length(); node != null; i++)
+		{
+			if(node.prefix)
+			{
+				return true;
+			}
+
+			if(i == len)
+			{
+				if(node.exact)
+				{
+					return true;
+				}
+				break;
+			}
+
+			node = node.child(Character.toLowerCase(path.charAt(i)));
+		}
+
+		for(GlobMatcher glob : this.globs)
+		{
+			if(glob.matches(path))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private Node insert(String literal)
+	{
+		Node node = this.root;
+		for(int i = 0, len = literal.length(); i < len; i++)
+		{
+			char c = Character.toLowerCase(literal.charAt(i));
+			Node child = node.child(c);
+			if(child == null)
+			{
+				child = node.addChild(c);
+			}
+			node = child;
+		}
+
+		return node;
+	}
+
+	private static final class Node
+	{
+		// 子节点通常很少，使用数组顺序查找比 Map 更快且没有装箱
+		char[]	keys		= new char[0];
+		Node[]	children	= new Node[0];
+		// 请求路径到此结束时匹配
+		boolean	exact;
+		// 请求路径以此为前缀时匹配
+		boolean	prefix;
+
+		Node child(char c)
+		{
+			char[] _keys = this.keys;
+			for(int i = 0; i < _keys.length; i++)
+			{
+				if(_keys[i] == c)
+				{
+					return this.children[i];
+				}
+			}
+
+			return null;
+		}
+
+		Node addChild(char c)
+		{
+			int size = this.keys.length;
+
+			char[] _keys = new char[size + 1];
+			System.arraycopy(this.keys, 0, _keys, 0, size);
+			_keys[size] = c;
+
+			Node[] _children = new Node[size + 1];
+			System.arraycopy(this.children, 0, _children, 0, size);
+			Node child = new Node();
+			_children[size] = child;
+
+			this.keys = _keys;
+			this.children = _children;
+
+			return child;
+		}
+	}
+}
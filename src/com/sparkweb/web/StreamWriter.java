@@ -0,0 +1,21 @@
+package com.sparkweb.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 流式响应的内容生成回调，参见 Response.stream(String, StreamWriter)
+ * 
+ * @author yswang
+ * @version 1.0
+ */
+public interface StreamWriter
+{
+	/**
+	 * 向响应中写入内容。写入的内容按照分块大小缓冲，缓冲区满时发送给客户端；不需要关闭 out。
+	 * 
+	 * @param out 响应输出
+	 * @throws IOException
+	 */
+	void write(OutputStream out) throws IOException;
+}
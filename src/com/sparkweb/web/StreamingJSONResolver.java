@@ -0,0 +1,25 @@
+package com.sparkweb.web;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 支持流式输出的JSON数据结构处理器 <br>
+ * Response.json(Object)、Response.jsonp 渲染时直接将对象序列化写入响应输出流，
+ * 不再先生成完整的 JSON 字符串再编码为字节数组，较大的响应数据只需占用很少的内存。
+ * <br> 只实现了 {@link JSONResolver} 的处理器仍然使用 toJSONString(Object)。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public interface StreamingJSONResolver extends JSONResolver
+{
+	/**
+	 * 将对象序列化为JSON写入 writer，不需要关闭 writer
+	 *
+	 * @param object 需要序列化的对象
+	 * @param writer 响应输出
+	 * @throws IOException
+	 */
+	void writeJSONString(Object object, Writer writer) throws IOException;
+}
@@ -0,0 +1,273 @@
+package com.sparkweb.web;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * application/x-www-form-urlencoded 格式（URL查询字符串、表单请求体）的解析器
+ * <p>
+ * 一次遍历完成参数的切分：不含 %XX 和 + 的参数名、参数值直接截取，
+ * 需要解码时才将连续的 %XX 按字符集解码；同名参数的多个值按倍数扩容，最后再截取为实际长度。
+ * 无效的 %XX 按原样保留，不会抛出异常。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class UrlEncodedParser
+{
+	private static final Charset	ISO_8859_1	= Charset.forName("ISO-8859-1");
+	private static final Charset	UTF_8		= Charset.forName("UTF-8");
+
+	private final Charset			charset;
+	// 解析的是按 ISO-8859-1 转换的原始字节，>= 0x80 的字符也需要按字符集解码
+	private final boolean			rawBytes;
+
+	private final Map<String, String[]>	params		= new HashMap<String, String[]>();
+	// 出现多次的参数已经填充的值的数量
+	private Map<String, int[]>		sizes		= null;
+
+	private StringBuilder			chars		= null;
+	private byte[]					bytes		= null;
+
+	private UrlEncodedParser(String charset, boolean rawBytes) {
+		this.charset = charsetOf(charset);
+		this.rawBytes = rawBytes;
+	}
+
+	/**
+	 * 解析URL查询字符串
+	 *
+	 * @param queryString 查询字符串（不包括 ?）
+	 * @param charset %XX 解码使用的字符集
+	 */
+	static Map<String, String[]> parse(String queryString, String charset)
+	{
+		if(queryString == null || queryString.length() == 0)
+		{
+			return Collections.emptyMap();
+		}
+
+		return new UrlEncodedParser(charset, false).parse(queryString);
+	}
+
+	/**
+	 * 解析表单请求体
+	 *
+	 * @param data 请求体
+	 * @param length 请求体的长度
+	 * @param charset 解码使用的字符集
+	 */
+	static Map<String, String[]> parse(byte[] data, int length, String charset)
+	{
+		if(length == 0)
+		{
+			return Collections.emptyMap();
+		}
+
+		// 每个字节对应一个字符，解码时再按字符集还原
+		String form = new String(data, 0, length, ISO_8859_1);
+		return new UrlEncodedParser(charset, true).parse(form);
+	}
+
+	private Map<String, String[]> parse(String s)
+	{
+		int len = s.length();
+		int start = 0;
+		int eq = -1;
+		boolean keyEncoded = false;
+		boolean valueEncoded = false;
+
+		for(int i = 0; i <= len; i++)
+		{
+			char c = i < len ? s.charAt(i) : '&';
+			if(c == '&')
+			{
+				if(i > start)
+				{
+					String key = eq == -1 ? decode(s, start, i, keyEncoded) : decode(s, start, eq, keyEncoded);
+					String value = eq == -1 ? "" : decode(s, eq + 1, i, valueEncoded);
+					add(key, value);
+				}
+
+				start = i + 1;
+				eq = -1;
+				keyEncoded = false;
+				valueEncoded = false;
+			}
+			else if(c == '=' && eq == -1)
+			{
+				eq = i;
+			}
+			else if(c == '%' || c == '+' || (this.rawBytes && c >= 0x80))
+			{
+				if(eq == -1)
+				{
+					keyEncoded = true;
+				}
+				else
+				{
+					valueEncoded = true;
+				}
+			}
+		}
+
+		if(this.sizes != null)
+		{
+			for(Map.Entry<String, int[]> en : this.sizes.entrySet())
+			{
+				String[] values = this.params.get(en.getKey());
+				int size = en.getValue()[0];
+				if(values.length != size)
+				{
+					this.params.put(en.getKey(), Arrays.copyOf(values, size));
+				}
+			}
+		}
+
+		return this.params;
+	}
+
+	private void add(String key, String value)
+	{
+		String[] values = this.params.get(key);
+		if(values == null)
+		{
+			this.params.put(key, new String[] {value});
+			return;
+		}
+
+		if(this.sizes == null)
+		{
+			this.sizes = new HashMap<String, int[]>();
+		}
+
+		int[] size = this.sizes.get(key);
+		if(size == null)
+		{
+			size = new int[] {values.length};
+			this.sizes.put(key, size);
+		}
+
+		if(size[0] == values.length)
+		{
+			values = Arrays.copyOf(values, values.length * 2);
+			this.params.put(key, values);
+		}
+
+		values[size[0]++] = value;
+	}
+
+	private String decode(String s, int from, int to, boolean encoded)
+	{
+		if(!encoded)
+		{
+			return s.substring(from, to);
+		}
+
+		if(this.chars == null)
+		{
+			this.chars = new StringBuilder(to - from);
+			this.bytes = new byte[Math.max(16, to - from)];
+		}
+
+		StringBuilder sb = this.chars;
+		sb.setLength(0);
+
+		int i = from;
+		while(i < to)
+		{
+			char c = s.charAt(i);
+			if(c == '+')
+			{
+				sb.append(' ');
+				i++;
+				continue;
+			}
+
+			if(byteAt(s, i, to) == -1)
+			{
+				sb.append(c);
+				i++;
+				continue;
+			}
+
+			// 连续的 %XX（以及原始字节）一起按字符集解码
+			int n = 0;
+			int b;
+			while(i < to && (b = byteAt(s, i, to)) != -1)
+			{
+				if(n == this.bytes.length)
+				{
+					this.bytes = Arrays.copyOf(this.bytes, n * 2);
+				}
+
+				this.bytes[n++] = (byte) b;
+				i += s.charAt(i) == '%' ? 3 : 1;
+			}
+
+			sb.append(new String(this.bytes, 0, n, this.charset));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * i 位置上的 %XX 或原始字节的值，不是时返回 -1
+	 */
+	private int byteAt(String s, int i, int to)
+	{
+		char c = s.charAt(i);
+		if(c == '%')
+		{
+			if(i + 2 >= to)
+			{
+				return -1;
+			}
+
+			int hi = hex(s.charAt(i + 1));
+			int lo = hex(s.charAt(i + 2));
+			return hi == -1 || lo == -1 ? -1 : (hi << 4) | lo;
+		}
+
+		return this.rawBytes && c >= 0x80 ? c : -1;
+	}
+
+	private static int hex(char c)
+	{
+		if(c >= '0' && c <= '9')
+		{
+			return c - '0';
+		}
+
+		if(c >= 'a' && c <= 'f')
+		{
+			return c - 'a' + 10;
+		}
+
+		if(c >= 'A' && c <= 'F')
+		{
+			return c - 'A' + 10;
+		}
+
+		return -1;
+	}
+
+	private static Charset charsetOf(String charset)
+	{
+		if(charset == null)
+		{
+			return UTF_8;
+		}
+
+		try
+		{
+			return Charset.forName(charset);
+		} catch(IllegalArgumentException e)
+		{
+			return UTF_8;
+		}
+	}
+}
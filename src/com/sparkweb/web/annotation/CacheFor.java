@@ -9,14 +9,29 @@ import java.lang.annotation.Target;
  * Cache an action's result.
  *
  * <p>Example: <code>@CacheFor("1h")</code>
+ * 
+ * <p>只缓存 GET 请求中状态为 200 的响应（状态、响应头和响应内容），HEAD 请求也可以使用缓存的响应；
+ * 设置了 Cookie 的响应不会被缓存。
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface CacheFor 
 {
+	// 缓存时间，比如：30s、10mn、1h、7d
+	String value() default "1h";
+	
 	// 数据放入缓存的哪个缓存区中
     String region() default "";
     
     // 数据的唯一标识key
     String key() default "";
+    
+    // 是否合并同一个缓存key上并发的缓存未命中请求：只有一个请求执行Action，其它请求等待并共享它的结果
+    boolean singleFlight() default false;
+    
+    // 合并请求时等待的最长时间，超时后自行执行Action
+    String waitTimeout() default "5s";
+    
+    // 缓存过期后仍然可以返回旧结果的时间，在此期间只由一个请求负责刷新缓存；为空表示不启用，比如：30s、1mn
+    String staleWhileRevalidate() default "";
 }
@@ -0,0 +1,40 @@
+package com.sparkweb.web.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 限制一个Controller Action同时处理的请求数，超过限制的请求直接返回 503 和 Retry-After，
+ * 不进行参数绑定、不执行拦截器。
+ * <pre><code>
+ * @ConcurrencyLimit(20)
+ * @ConcurrencyLimit(value = 50, adaptive = true, minLimit = 5)
+ * </code></pre>
+ * 
+ * @author yswang
+ * @version 1.0
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimit 
+{
+	/**
+	 * 最大并发请求数
+	 * @return
+	 */
+	int value();
+	
+	/**
+	 * 是否根据请求耗时自适应调整并发限制（AIMD）：耗时明显变长时降低限制，恢复后逐步提高到 value
+	 * @return
+	 */
+	boolean adaptive() default false;
+	
+	/**
+	 * 自适应调整时并发限制的最小值
+	 * @return
+	 */
+	int minLimit() default 1;
+}
@@ -0,0 +1,23 @@
+package com.sparkweb.web.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 用来标记一个Controller Action（或Controller中的所有Action）在独立的线程池中执行，
+ * 适用于执行阻塞的 JDBC、HTTP 调用等耗时操作的Action，避免占用Web容器的工作线程。
+ * <p>
+ * Action 通过异步请求（Servlet 3.0）执行，@Before 拦截器仍然在容器线程上执行；
+ * Action 中仍然可以使用 HttpContext.current()。线程池和等待队列都已满时直接返回 503。
+ * <br> 线程池参见 ExtendedWebSettings.offloadExecutor()。
+ * 
+ * @author yswang
+ * @version 1.0
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Offload {
+	
+}
@@ -0,0 +1,62 @@
+package com.sparkweb.web.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.sparkweb.web.RateLimitKeyResolver;
+
+/**
+ * 限制一个Controller Action的请求速率（令牌桶），超过速率的请求直接返回 429 和 Retry-After，
+ * 不进行参数绑定、不执行拦截器。
+ * <pre><code>
+ * // 每个IP每分钟最多 100 个请求，允许瞬间突发 20 个
+ * @RateLimit(value = 100, per = "1mn", burst = 20)
+ * // 每个 API Key 每秒最多 10 个请求
+ * @RateLimit(value = 10, key = "header:X-Api-Key")
+ * </code></pre>
+ * 
+ * @author yswang
+ * @version 1.0
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit 
+{
+	/**
+	 * 每个时间段内允许的请求数
+	 * @return
+	 */
+	int value();
+	
+	/**
+	 * 时间段，比如：1s、1mn、1h
+	 * @return
+	 */
+	String per() default "1s";
+	
+	/**
+	 * 允许瞬间突发的请求数（令牌桶的容量），0 表示等于 value
+	 * @return
+	 */
+	int burst() default 0;
+	
+	/**
+	 * 按什么限流：
+	 * <ul>
+	 * <li>ip：客户端IP</li>
+	 * <li>route：整个Action共享一个令牌桶</li>
+	 * <li>header:名称：请求头的值，比如 header:X-Api-Key</li>
+	 * <li>session:名称：Session 属性的值，比如 session:userId；没有 Session 时按客户端IP</li>
+	 * </ul>
+	 * @return
+	 */
+	String key() default "ip";
+	
+	/**
+	 * 自定义的限流key解析器，设置后忽略 key()
+	 * @return
+	 */
+	Class<? extends RateLimitKeyResolver> keyResolver() default RateLimitKeyResolver.class;
+}
@@ -0,0 +1,171 @@
+package com.sparkweb.web.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内置的指标实现，指标保存在内存中
+ * <p>
+ * writeText 输出 Prometheus 文本格式：
+ * <pre>
+ * sparkweb_requests_total{method="GET",route="/user/:id"} 1024
+ * sparkweb_request_errors_total{method="GET",route="/user/:id"} 3
+ * sparkweb_requests_in_flight{method="GET",route="/user/:id"} 2
+ * sparkweb_request_duration_seconds{method="GET",route="/user/:id",phase="total",quantile="0.99"} 0.0123
+ * </pre>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry
+{
+	private static final double[]								QUANTILES	= {0.5, 0.9, 0.99, 0.999};
+
+	private final ConcurrentHashMap<String, DefaultRouteMetrics>	routes		= new ConcurrentHashMap<String, DefaultRouteMetrics>();
+
+	public RouteMetrics register(String method, String path)
+	{
+		String key = method + ' ' + path;
+		DefaultRouteMetrics metrics = this.routes.get(key);
+		if(metrics == null)
+		{
+			DefaultRouteMetrics created = new DefaultRouteMetrics(method, path);
+			metrics = this.routes.putIfAbsent(key, created);
+			if(metrics == null)
+			{
+				metrics = created;
+			}
+		}
+
+		return metrics;
+	}
+
+	/**
+	 * 所有路由的指标，按路由路径排序
+	 */
+	public List<DefaultRouteMetrics> routes()
+	{
+		List<DefaultRouteMetrics> list = new ArrayList<DefaultRouteMetrics>(this.routes.values());
+		Collections.sort(list, new Comparator<DefaultRouteMetrics>() {
+			public int compare(DefaultRouteMetrics m1, DefaultRouteMetrics m2)
+			{
+				int c = m1.path().compareTo(m2.path());
+				return c != 0 ? c : m1.method().compareTo(m2.method());
+			}
+		});
+
+		return list;
+	}
+
+	public void writeText(Writer out) throws IOException
+	{
+		List<DefaultRouteMetrics> routes = routes();
+
+		out.write("# TYPE sparkweb_requests_total counter\n");
+		for(DefaultRouteMetrics metrics : routes)
+		{
+			writeSample(out, "sparkweb_requests_total", labels(metrics), metrics.requestCount());
+		}
+
+		out.write("# TYPE sparkweb_request_errors_total counter\n");
+		for(DefaultRouteMetrics metrics : routes)
+		{
+			writeSample(out, "sparkweb_request_errors_total", labels(metrics), metrics.errorCount());
+		}
+
+		out.write("# TYPE sparkweb_requests_in_flight gauge\n");
+		for(DefaultRouteMetrics metrics : routes)
+		{
+			writeSample(out, "sparkweb_requests_in_flight", labels(metrics), metrics.inFlight());
+		}
+
+		out.write("# TYPE sparkweb_request_duration_seconds summary\n");
+		for(DefaultRouteMetrics metrics : routes)
+		{
+			String labels = labels(metrics);
+			writeSummary(out, labels + ",phase=\"total\"", metrics.latency());
+
+			for(Phase phase : Phase.values())
+			{
+				writeSummary(out, labels + ",phase=\"" + phase.name().toLowerCase(Locale.ENGLISH) + '\"', metrics.latency(phase));
+			}
+		}
+
+		out.flush();
+	}
+
+	private static void writeSummary(Writer out, String labels, LatencyHistogram histogram) throws IOException
+	{
+		long count = histogram.count();
+		if(count == 0)
+		{
+			return;
+		}
+
+		for(double quantile : QUANTILES)
+		{
+			writeSample(out, "sparkweb_request_duration_seconds", labels + ",quantile=\"" + quantile + '\"', 
+					seconds(histogram.valueAt(quantile)));
+		}
+
+		writeSample(out, "sparkweb_request_duration_seconds_sum", labels, seconds(histogram.sum()));
+		writeSample(out, "sparkweb_request_duration_seconds_count", labels, count);
+	}
+
+	private static void writeSample(Writer out, String name, String labels, Object value) throws IOException
+	{
+		out.write(name);
+		out.write('{');
+		out.write(labels);
+		out.write("} ");
+		out.write(String.valueOf(value));
+		out.write('\n');
+	}
+
+	private static String labels(DefaultRouteMetrics metrics)
+	{
+		return "method=\"" + escape(metrics.method()) + "\",route=\"" + escape(metrics.path()) + '\"';
+	}
+
+	private static double seconds(long nanos)
+	{
+		return nanos / 1e9;
+	}
+
+	/**
+	 * 标签值中的 \、" 和换行需要转义
+	 */
+	private static String escape(String value)
+	{
+		if(value.indexOf('\\') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1)
+		{
+			return value;
+		}
+
+		StringBuilder sb = new StringBuilder(value.length() + 8);
+		for(int i = 0, len = value.length(); i < len; i++)
+		{
+			char c = value.charAt(i);
+			if(c == '\\' || c == '"')
+			{
+				sb.append('\\').append(c);
+			}
+			else if(c == '\n')
+			{
+				sb.append("\\n");
+			}
+			else
+			{
+				sb.append(c);
+			}
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,102 @@
+package com.sparkweb.web.metrics;
+
+/**
+ * 内置的路由指标：请求数、出错数、正在处理的请求数，以及总耗时和各个处理阶段的耗时分布
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class DefaultRouteMetrics implements RouteMetrics
+{
+	private final String				method;
+	private final String				path;
+
+	private final StripedCounter		requests	= new StripedCounter();
+	private final StripedCounter		errors		= new StripedCounter();
+	private final StripedCounter		inFlight	= new StripedCounter();
+
+	private final LatencyHistogram		latency		= new LatencyHistogram();
+	private final LatencyHistogram[]	phases		= new LatencyHistogram[Phase.values().length];
+
+	DefaultRouteMetrics(String method, String path) {
+		this.method = method;
+		this.path = path;
+
+		for(int i = 0; i < this.phases.length; i++)
+		{
+			this.phases[i] = new LatencyHistogram();
+		}
+	}
+
+	public void started()
+	{
+		this.requests.increment();
+		this.inFlight.increment();
+	}
+
+	public void record(Phase phase, long nanos)
+	{
+		this.phases[phase.ordinal()].record(nanos);
+	}
+
+	public void completed(long nanos, boolean error)
+	{
+		this.inFlight.decrement();
+		this.latency.record(nanos);
+
+		if(error)
+		{
+			this.errors.increment();
+		}
+	}
+
+	public String method()
+	{
+		return this.method;
+	}
+
+	public String path()
+	{
+		return this.path;
+	}
+
+	/**
+	 * 请求数
+	 */
+	public long requestCount()
+	{
+		return this.requests.sum();
+	}
+
+	/**
+	 * 出错的请求数
+	 */
+	public long errorCount()
+	{
+		return this.errors.sum();
+	}
+
+	/**
+	 * 正在处理的请求数
+	 */
+	public long inFlight()
+	{
+		return this.inFlight.sum();
+	}
+
+	/**
+	 * 请求的总耗时分布
+	 */
+	public LatencyHistogram latency()
+	{
+		return this.latency;
+	}
+
+	/**
+	 * 处理阶段的耗时分布
+	 */
+	public LatencyHistogram latency(Phase phase)
+	{
+		return this.phases[phase.ordinal()];
+	}
+}
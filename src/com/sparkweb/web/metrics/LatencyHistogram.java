@@ -0,0 +1,144 @@
+package com.sparkweb.web.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时分布（对数-线性分桶，类似 HdrHistogram）
+ * <p>
+ * 以约 1 微秒（1024 纳秒）为单位，每个 2 的幂区间再线性分为 8 个桶，
+ * 分位数的相对误差不超过 12.5%；最大记录约 18 分钟，更长的耗时记入最后一个桶。
+ * 记录时只有几次原子操作，不创建对象、不加锁。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class LatencyHistogram
+{
+	// 记录的最小单位：2^10 纳秒
+	private static final int	UNIT_SHIFT		= 10;
+	// 每个 2 的幂区间分为 2^3 个桶
+	private static final int	SUB_BITS		= 3;
+	private static final int	SUB_COUNT		= 1 << SUB_BITS;
+	// 最大记录 2^30 个单位
+	private static final int	MAX_EXPONENT	= 30;
+	private static final int	BUCKETS			= (MAX_EXPONENT - SUB_BITS + 2) << SUB_BITS;
+	private static final long	MAX_VALUE		= (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private final AtomicLongArray	counts	= new AtomicLongArray(BUCKETS);
+	private final AtomicLong		sum		= new AtomicLong();
+	private final AtomicLong		max		= new AtomicLong();
+
+	/**
+	 * 记录一次耗时
+	 *
+	 * @param nanos 耗时（纳秒）
+	 */
+	public void record(long nanos)
+	{
+		if(nanos < 0)
+		{
+			nanos = 0;
+		}
+
+		this.counts.incrementAndGet(bucketOf(Math.min(nanos >>> UNIT_SHIFT, MAX_VALUE)));
+		this.sum.addAndGet(nanos);
+
+		long current;
+		while(nanos > (current = this.max.get()))
+		{
+			if(this.max.compareAndSet(current, nanos))
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 记录的次数
+	 */
+	public long count()
+	{
+		long count = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			count += this.counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * 总耗时（纳秒）
+	 */
+	public long sum()
+	{
+		return this.sum.get();
+	}
+
+	/**
+	 * 最大耗时（纳秒）
+	 */
+	public long max()
+	{
+		return this.max.get();
+	}
+
+	/**
+	 * 分位数对应的耗时
+	 *
+	 * @param quantile 分位数，如 0.99
+	 * @return 耗时（纳秒），没有记录时返回 0
+	 */
+	public long valueAt(double quantile)
+	{
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			snapshot[i] = this.counts.get(i);
+			total += snapshot[i];
+		}
+
+		if(total == 0)
+		{
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * total);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			seen += snapshot[i];
+			if(seen >= Math.max(rank, 1))
+			{
+				return Math.min(midpointOf(i) << UNIT_SHIFT, max());
+			}
+		}
+
+		return max();
+	}
+
+	private static int bucketOf(long value)
+	{
+		if(value < SUB_COUNT)
+		{
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+	}
+
+	private static long midpointOf(int bucket)
+	{
+		if(bucket < SUB_COUNT)
+		{
+			return bucket;
+		}
+
+		int shift = (bucket >>> SUB_BITS) - 1;
+		long lower = (long) (SUB_COUNT + (bucket & (SUB_COUNT - 1))) << shift;
+		return lower + ((1L << shift) >>> 1);
+	}
+}
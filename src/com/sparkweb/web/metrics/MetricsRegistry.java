@@ -0,0 +1,33 @@
+package com.sparkweb.web.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 请求指标的扩展接口(SPI) <br>
+ * 通过 <code>ExtendedWebSettings.metricsRegistry()</code> 提供，内置的实现是 {@link DefaultMetricsRegistry}；
+ * 也可以将指标转发到其它的监控系统。
+ * <p>
+ * 指标按路由定义（请求方法 + 路由路径，如 <code>GET /user/:id</code>）汇总，而不是按实际的请求路径。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public interface MetricsRegistry
+{
+	/**
+	 * 为路由创建指标记录器，在路由注册时调用
+	 *
+	 * @param method 请求方法
+	 * @param path 路由定义的路径
+	 * @return 指标记录器，同一个路由返回同一个对象
+	 */
+	RouteMetrics register(String method, String path);
+
+	/**
+	 * 以文本格式输出所有的指标，用于 <code>ExtendedWebSettings.metricsPath()</code> 配置的指标地址
+	 *
+	 * @param out 输出
+	 */
+	void writeText(Writer out) throws IOException;
+}
@@ -0,0 +1,23 @@
+package com.sparkweb.web.metrics;
+
+/**
+ * 请求处理的阶段
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public enum Phase
+{
+	/** 路由匹配 */
+	MATCH,
+	/** Action 参数绑定 */
+	BIND,
+	/** @Before 拦截器（包括 CSRF 校验） */
+	BEFORE,
+	/** Action 执行（包括 @Catch） */
+	ACTION,
+	/** @After 拦截器 */
+	AFTER,
+	/** 渲染结果 */
+	RENDER
+}
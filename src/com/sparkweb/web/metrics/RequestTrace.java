@@ -0,0 +1,180 @@
+package com.sparkweb.web.metrics;
+
+import java.util.Locale;
+
+/**
+ * 一个请求的跟踪记录，由 {@link RequestTracer#begin(long)} 获取
+ * <p>
+ * 记录保存在预先分配的数组中，超过容量的记录被丢弃并计数。
+ * 同一时刻只有一个线程处理请求，因此不需要同步；异步请求在 Promise 完成的线程上继续记录。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class RequestTrace
+{
+	private static final int		CAPACITY	= 64;
+
+	private final RequestTracer		tracer;
+
+	private final Phase[]			phases		= new Phase[CAPACITY];
+	private final String[]			names		= new String[CAPACITY];
+	private final long[]			starts		= new long[CAPACITY];
+	private final long[]			durations	= new long[CAPACITY];
+	private int						size		= 0;
+	private int						dropped		= 0;
+
+	private long					startedAt;
+	private String					method;
+	private String					uri;
+	private String					route;
+	private int						status;
+
+	// 请求尚未结束，缓冲区不能被当前线程的下一个请求使用
+	volatile boolean				active		= false;
+
+	RequestTrace(RequestTracer tracer) {
+		this.tracer = tracer;
+	}
+
+	void reset(long startedAt)
+	{
+		for(int i = 0; i < this.size; i++)
+		{
+			this.names[i] = null;
+		}
+
+		this.size = 0;
+		this.dropped = 0;
+		this.startedAt = startedAt;
+		this.active = true;
+	}
+
+	/**
+	 * 记录一个处理阶段
+	 *
+	 * @param phase 处理阶段
+	 * @param name 阶段内的具体步骤（比如拦截器的名称），整个阶段时为 null
+	 * @param start 开始时间（System.nanoTime()）
+	 * @param end 结束时间（System.nanoTime()）
+	 */
+	public void span(Phase phase, String name, long start, long end)
+	{
+		int i = this.size;
+		if(i == CAPACITY)
+		{
+			this.dropped++;
+			return;
+		}
+
+		this.phases[i] = phase;
+		this.names[i] = name;
+		this.starts[i] = start - this.startedAt;
+		this.durations[i] = end - start;
+		this.size = i + 1;
+	}
+
+	/**
+	 * 请求结束，总耗时超过阈值时输出跟踪记录，之后缓冲区可以被重复使用
+	 *
+	 * @param method 请求方法
+	 * @param uri 请求路径
+	 * @param route 路由定义的路径
+	 * @param status 响应状态码
+	 */
+	public void end(String method, String uri, String route, int status)
+	{
+		this.method = method;
+		this.uri = uri;
+		this.route = route;
+		this.status = status;
+
+		try
+		{
+			this.tracer.completed(this, System.nanoTime() - this.startedAt);
+		}
+		finally
+		{
+			this.method = null;
+			this.uri = null;
+			this.route = null;
+			this.active = false;
+		}
+	}
+
+	String toJSON(long totalNanos)
+	{
+		StringBuilder sb = new StringBuilder(128 + this.size * 64);
+		sb.append("{\"method\":");
+		quote(sb, this.method);
+		sb.append(", \"uri\":");
+		quote(sb, this.uri);
+		sb.append(", \"route\":");
+		quote(sb, this.route);
+		sb.append(", \"status\":").append(this.status);
+		sb.append(", \"ms\":").append(millis(totalNanos));
+		sb.append(", \"spans\":[");
+		for(int i = 0; i < this.size; i++)
+		{
+			if(i > 0)
+			{
+				sb.append(", ");
+			}
+
+			sb.append("{\"phase\":\"").append(this.phases[i].name().toLowerCase(Locale.ENGLISH)).append('\"');
+			if(this.names[i] != null)
+			{
+				sb.append(", \"name\":");
+				quote(sb, this.names[i]);
+			}
+			sb.append(", \"at\":").append(millis(this.starts[i]));
+			sb.append(", \"ms\":").append(millis(this.durations[i]));
+			sb.append('}');
+		}
+		sb.append(']');
+
+		if(this.dropped > 0)
+		{
+			sb.append(", \"dropped\":").append(this.dropped);
+		}
+		sb.append('}');
+
+		return sb.toString();
+	}
+
+	/**
+	 * 毫秒，保留3位小数
+	 */
+	private static String millis(long nanos)
+	{
+		return String.valueOf(Math.round(nanos / 1000.0) / 1000.0);
+	}
+
+	private static void quote(StringBuilder sb, String value)
+	{
+		if(value == null)
+		{
+			sb.append("null");
+			return;
+		}
+
+		sb.append('\"');
+		for(int i = 0, len = value.length(); i < len; i++)
+		{
+			char c = value.charAt(i);
+			if(c == '\"' || c == '\\')
+			{
+				sb.append('\\').append(c);
+			}
+			else if(c < 0x20)
+			{
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				sb.append(c);
+			}
+		}
+		sb.append('\"');
+	}
+}
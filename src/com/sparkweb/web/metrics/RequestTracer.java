@@ -0,0 +1,79 @@
+package com.sparkweb.web.metrics;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 慢请求跟踪 <br>
+ * 按采样率选中的请求在处理时记录各个阶段（路由匹配、CSRF 校验、每个 @Before/@After 拦截器、参数绑定、Action、渲染）的耗时，
+ * 总耗时超过阈值时以一行 JSON 输出到日志（WARN）。
+ * <p>
+ * 每个线程预先分配一个记录缓冲区并重复使用，记录时不创建对象；没有被采样的请求只有一次随机数的开销。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public final class RequestTracer
+{
+	private static final Log					log		= LogFactory.getLog(RequestTracer.class);
+
+	private final long							thresholdNanos;
+	private final double						sampleRate;
+	private final ThreadLocal<RequestTrace>		buffers	= new ThreadLocal<RequestTrace>();
+	// 每个线程使用自己的随机数生成器，采样时线程之间没有竞争
+	private final ThreadLocal<Random>			randoms	= new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue()
+		{
+			return new Random();
+		}
+	};
+
+	/**
+	 * @param thresholdMillis 慢请求的阈值（毫秒）
+	 * @param sampleRate 采样率，0 ~ 1
+	 */
+	public RequestTracer(long thresholdMillis, double sampleRate) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * 开始跟踪一个请求
+	 *
+	 * @param startedAt 请求开始处理的时间（System.nanoTime()）
+	 * @return 没有被采样时返回 null
+	 */
+	public RequestTrace begin(long startedAt)
+	{
+		if(this.sampleRate < 1 && this.randoms.get().nextDouble() >= this.sampleRate)
+		{
+			return null;
+		}
+
+		RequestTrace trace = this.buffers.get();
+		// 当前线程的缓冲区仍然被尚未结束的异步请求使用
+		if(trace == null || trace.active)
+		{
+			trace = new RequestTrace(this);
+			this.buffers.set(trace);
+		}
+
+		trace.reset(startedAt);
+		return trace;
+	}
+
+	/**
+	 * 请求结束，超过阈值时输出跟踪记录
+	 */
+	void completed(RequestTrace trace, long totalNanos)
+	{
+		if(totalNanos >= this.thresholdNanos && log.isWarnEnabled())
+		{
+			log.warn("Slow request: " + trace.toJSON(totalNanos));
+		}
+	}
+}
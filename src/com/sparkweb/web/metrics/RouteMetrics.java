@@ -0,0 +1,34 @@
+package com.sparkweb.web.metrics;
+
+/**
+ * 单个路由的指标记录器，由 {@link MetricsRegistry} 在路由注册时创建
+ * <p>
+ * 每个请求都会调用，实现类必须是线程安全的，并且不应该在记录时创建对象或加锁。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+public interface RouteMetrics
+{
+	/**
+	 * 路由匹配成功，开始处理请求
+	 */
+	void started();
+
+	/**
+	 * 记录请求处理的一个阶段的耗时
+	 *
+	 * @param phase 处理阶段
+	 * @param nanos 耗时（纳秒）
+	 */
+	void record(Phase phase, long nanos);
+
+	/**
+	 * 请求处理结束（异步请求在 Promise 完成并输出响应之后）
+	 *
+	 * @param nanos 从路由匹配开始的总耗时（纳秒）
+	 * @param error 是否出错：存在没有被 @Catch 处理的异常，响应状态码 &gt;= 500，
+	 *            或者请求被 @RateLimit、@ConcurrencyLimit、@Offload 线程池拒绝
+	 */
+	void completed(long nanos, boolean error);
+}
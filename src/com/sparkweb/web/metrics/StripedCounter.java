@@ -0,0 +1,59 @@
+package com.sparkweb.web.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器 <br>
+ * 不同的线程在不同的缓存行上计数，读取时汇总，避免大量线程同时更新一个 AtomicLong 的竞争。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class StripedCounter
+{
+	// 每个分段占用的 long 数量，使不同的分段位于不同的缓存行
+	private static final int	PADDING	= 8;
+	private static final int	STRIPES	= stripes();
+
+	private final AtomicLongArray	cells	= new AtomicLongArray(STRIPES * PADDING);
+
+	void add(long delta)
+	{
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		this.cells.addAndGet(stripe * PADDING, delta);
+	}
+
+	void increment()
+	{
+		add(1);
+	}
+
+	void decrement()
+	{
+		add(-1);
+	}
+
+	long sum()
+	{
+		long sum = 0;
+		for(int i = 0; i < STRIPES; i++)
+		{
+			sum += this.cells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	/**
+	 * 不小于CPU数量的2的幂，最多 16 个分段
+	 */
+	private static int stripes()
+	{
+		int cpus = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+		int stripes = 1;
+		while(stripes < cpus)
+		{
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+}
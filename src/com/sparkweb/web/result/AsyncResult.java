@@ -0,0 +1,64 @@
+package com.sparkweb.web.result;
+
+import com.sparkweb.exception.UnexpectedException;
+import com.sparkweb.web.Promise;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.Response;
+import com.sparkweb.web.SparkConfig;
+
+/**
+ * The result of an asynchronous action, completed later through its {@link Promise}.
+ * <p>
+ * A routed action throwing it releases the container thread (Servlet 3.0 async), the
+ * router resumes the request when the promise is done. When the request can not be
+ * handled asynchronously (the filter is not async-supported, or the result is not
+ * thrown by an action) applying it waits for the promise on the current thread.
+ */
+public class AsyncResult extends Result
+{
+	private static final long	serialVersionUID	= -2377018725580938241L;
+
+	private final transient Promise	promise;
+
+	public AsyncResult(Promise promise) {
+		if(promise == null)
+		{
+			throw new IllegalArgumentException("The promise must not be null!");
+		}
+
+		this.promise = promise;
+	}
+
+	public Promise getPromise()
+	{
+		return this.promise;
+	}
+
+	@Override
+	public void apply(Request request, Response response)
+	{
+		long timeout = SparkConfig.getConfig().extendedSettings().asyncTimeout();
+		try
+		{
+			if(!this.promise.await(timeout))
+			{
+				throw new UnexpectedException("The asynchronous result has not been completed in " + timeout + "ms!");
+			}
+		} catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new UnexpectedException(e);
+		}
+
+		if(this.promise.cause() != null)
+		{
+			throw new UnexpectedException(this.promise.cause());
+		}
+
+		Result result = this.promise.result();
+		if(!(result instanceof NoResult))
+		{
+			result.apply(request, response);
+		}
+	}
+}
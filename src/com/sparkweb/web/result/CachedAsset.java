@@ -0,0 +1,119 @@
+package com.sparkweb.web.result;
+
+import java.io.File;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.sparkweb.web.Compression;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.Response;
+
+/**
+ * 200 OK with a static file held in memory.
+ * <p>
+ * The bytes, the strong ETag and (when compression is enabled) the gzip bytes are
+ * computed once when the file is loaded; the entry is stale as soon as the file's
+ * last modified time or length changes.
+ */
+public class CachedAsset extends Result
+{
+	private static final long	serialVersionUID	= 4419046279251362047L;
+
+	private final File			file;
+	private final long			lastModified;
+	private final String		contentType;
+	private final byte[]		bytes;
+	private final byte[]		gzipped;
+	private final String		etag;
+
+	/**
+	 * @param file The file
+	 * @param lastModified The last modified time of the file when the bytes were read
+	 * @param contentType The content type
+	 * @param bytes The content of the file
+	 * @param gzipped The gzip compressed content, or null
+	 */
+	public CachedAsset(File file, long lastModified, String contentType, byte[] bytes, byte[] gzipped) {
+		this.file = file;
+		this.lastModified = lastModified / 1000 * 1000;
+		this.contentType = contentType;
+		this.bytes = bytes;
+		this.gzipped = gzipped;
+		this.etag = computeEtag(bytes);
+	}
+
+	/**
+	 * Whether the file changed since it was loaded
+	 */
+	public boolean isStale()
+	{
+		return this.file.lastModified() / 1000 * 1000 != this.lastModified || this.file.length() != this.bytes.length;
+	}
+
+	/**
+	 * The memory held by this entry
+	 */
+	public int size()
+	{
+		return this.bytes.length + (this.gzipped != null ? this.gzipped.length : 0);
+	}
+
+	@Override
+	public void apply(Request request, Response response)
+	{
+		try
+		{
+			HttpServletResponse res = response.httpServletResponse();
+			response.contentType(this.contentType);
+			res.setDateHeader("Last-Modified", this.lastModified);
+			res.setHeader("Accept-Ranges", "bytes");
+
+			boolean gzip = false;
+			if(this.gzipped != null)
+			{
+				res.setHeader("Vary", "Accept-Encoding");
+				gzip = Compression.shouldGzip(request, this.contentType, this.bytes.length);
+			}
+
+			if(checkNotModified(request, response, this.etag, gzip ? Compression.GZIP : null))
+			{
+				return;
+			}
+
+			// If-Modified-Since is only evaluated without If-None-Match
+			if(request.header("If-None-Match") == null && isNotModifiedSince(request))
+			{
+				response.status(304);
+				return;
+			}
+
+			byte[] content = gzip ? this.gzipped : this.bytes;
+			if(gzip)
+			{
+				res.setHeader("Content-Encoding", Compression.GZIP);
+			}
+
+			res.setContentLength(content.length);
+			if(!"HEAD".equalsIgnoreCase(request.method()))
+			{
+				response.out().write(content);
+			}
+		} catch(Exception e)
+		{
+			e.printStackTrace();
+			//throw new UnexpectedException(e);
+		}
+	}
+
+	private boolean isNotModifiedSince(Request request)
+	{
+		try
+		{
+			long ifModifiedSince = request.raw().getDateHeader("If-Modified-Since");
+			return ifModifiedSince != -1 && this.lastModified <= ifModifiedSince;
+		} catch(IllegalArgumentException e)
+		{
+			return false;
+		}
+	}
+}
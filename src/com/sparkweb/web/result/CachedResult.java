@@ -0,0 +1,172 @@
+package com.sparkweb.web.result;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.sparkweb.web.Compression;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.Response;
+
+/**
+ * 使用 @CacheFor 缓存的响应结果：保存了渲染完成后的响应状态、响应头和响应内容，
+ * 命中缓存时直接回放，不再执行参数绑定、Action 和结果渲染。
+ * <p>
+ * 缓存时一次性计算响应内容的 ETag，开启 ETag 时客户端的重复请求只需要比较 ETag 即可返回 304。
+ */
+public class CachedResult extends Result
+{
+	private static final long	serialVersionUID	= -2748931460418279415L;
+
+	private final int			status;
+	private final String		contentType;
+	// 响应头按照加入的顺序保存：{name, value}
+	private final String[][]	headers;
+	private final byte[]		body;
+	// 生成时间，用于判断缓存是否新鲜
+	private final long			createdAt;
+	private final String		etag;
+	// 开启响应压缩时，第一次回放给支持 gzip 的客户端时生成，之后与原始内容一起缓存
+	private volatile byte[]		gzipped;
+
+	public CachedResult(int status, String contentType, String[][] headers, byte[] body) {
+		this.createdAt = System.currentTimeMillis();
+		this.status = status;
+		this.contentType = contentType;
+		this.headers = headers != null ? headers : new String[0][];
+		this.body = body != null ? body : new byte[0];
+		this.etag = capturedEtag(this.headers, this.body);
+	}
+	
+	/**
+	 * 渲染时已经生成的 ETag 直接使用，否则根据响应内容计算
+	 */
+	private static String capturedEtag(String[][] headers, byte[] body)
+	{
+		for(String[] header : headers)
+		{
+			if("ETag".equalsIgnoreCase(header[0]))
+			{
+				return header[1];
+			}
+		}
+		
+		return computeEtag(body);
+	}
+
+	public int getStatus()
+	{
+		return this.status;
+	}
+
+	public String getContentType()
+	{
+		return this.contentType;
+	}
+
+	public String[][] getHeaders()
+	{
+		return this.headers;
+	}
+
+	public byte[] getBody()
+	{
+		return this.body;
+	}
+
+	public long getCreatedAt()
+	{
+		return this.createdAt;
+	}
+
+	public String getEtag()
+	{
+		return this.etag;
+	}
+
+	/**
+	 * 使用 gzip 压缩后的响应内容，只压缩一次
+	 */
+	public byte[] getGzippedBody()
+	{
+		byte[] _gzipped = this.gzipped;
+		if(_gzipped == null)
+		{
+			_gzipped = Compression.gzip(this.body);
+			this.gzipped = _gzipped;
+		}
+
+		return _gzipped;
+	}
+
+	@Override
+	public void apply(Request request, Response response)
+	{
+		try
+		{
+			HttpServletResponse res = response.httpServletResponse();
+			res.setStatus(this.status);
+
+			// 同名的响应头：第一个覆盖，其余的追加
+			for(int i = 0; i < this.headers.length; i++)
+			{
+				String name = this.headers[i][0];
+				boolean seen = false;
+				for(int j = 0; j < i; j++)
+				{
+					if(this.headers[j][0].equalsIgnoreCase(name))
+					{
+						seen = true;
+						break;
+					}
+				}
+
+				if(seen)
+				{
+					res.addHeader(name, this.headers[i][1]);
+				}
+				else
+				{
+					res.setHeader(name, this.headers[i][1]);
+				}
+			}
+
+			if(this.contentType != null)
+			{
+				response.contentType(this.contentType);
+			}
+
+			// 直接使用缓存的压缩内容，响应压缩不会再次压缩已经设置了 Content-Encoding 的响应
+			boolean gzip = this.status == HttpServletResponse.SC_OK && res.getHeader("Content-Encoding") == null
+							&& Compression.shouldGzip(request, this.contentType, this.body.length);
+			if(etagEnabled() && checkNotModified(request, response, this.etag, gzip ? Compression.GZIP : null))
+			{
+				return;
+			}
+
+			if(gzip)
+			{
+				res.setHeader("Content-Encoding", Compression.GZIP);
+				String vary = res.getHeader("Vary");
+				if(vary == null)
+				{
+					res.setHeader("Vary", "Accept-Encoding");
+				}
+				else if(vary.toLowerCase().indexOf("accept-encoding") == -1)
+				{
+					res.setHeader("Vary", vary + ", Accept-Encoding");
+				}
+			}
+
+			byte[] content = gzip ? getGzippedBody() : this.body;
+			res.setContentLength(content.length);
+
+			if(!"HEAD".equalsIgnoreCase(request.method()))
+			{
+				response.out().write(content);
+			}
+		} catch(Exception e)
+		{
+			e.printStackTrace();
+			//throw new UnexpectedException(e);
+		}
+	}
+}
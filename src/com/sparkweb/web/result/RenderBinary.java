@@ -6,17 +6,31 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import com.sparkweb.exception.UnexpectedException;
 import com.sparkweb.util.MimeTypes;
+import com.sparkweb.web.HttpStatus;
 import com.sparkweb.web.Request;
 import com.sparkweb.web.Response;
 
 /**
  * 200 OK with application/octet-stream
+ * <p>
+ * File sources support Last-Modified / If-Modified-Since, byte ranges and 
+ * zero-copy transfer, see {@link #sendFile(Request, Response, File, String)}.
  */
 public class RenderBinary extends Result
 {
@@ -24,6 +38,13 @@ public class RenderBinary extends Result
 
 	private static final String	INLINE_DISPOSITION_TYPE		= "inline";
 	private static final String	ATTACHMENT_DISPOSITION_TYPE	= "attachment";
+	
+	private static final String	SENDFILE_SUPPORT_ATTR		= "org.apache.tomcat.sendfile.support";
+	private static final String	SENDFILE_FILENAME_ATTR		= "org.apache.tomcat.sendfile.filename";
+	private static final String	SENDFILE_START_ATTR			= "org.apache.tomcat.sendfile.start";
+	private static final String	SENDFILE_END_ATTR			= "org.apache.tomcat.sendfile.end";
+	
+	private static final int	MAX_RANGES					= 16;
 
 	private boolean						inline						= false;
 	private long						length						= 0;
@@ -65,11 +86,11 @@ public class RenderBinary extends Result
 	 * @param inline true to set the response Content-Disposition to inline
 	 */
 	public RenderBinary(InputStream is, String name, String contentType, boolean inline) {
-		this(is, name, 0, contentType, false);
+		this(is, name, 0, contentType, inline);
 	}
 
 	public RenderBinary(InputStream is, String name, long length, boolean inline) {
-		this(is, name, 0, null, false);
+		this(is, name, length, null, inline);
 	}
 	
 	public RenderBinary(InputStream is, String name, long length, String contentType, boolean inline) {
@@ -187,8 +208,8 @@ public class RenderBinary extends Result
 					throw new UnexpectedException("Your file is not a real file (" + file + ")!");
 				}
 				
-				bis = new BufferedInputStream(new FileInputStream(file));
-				length = file.length();
+				sendFile(request, response, file, null);
+				return;
 			}
 			
 			if(length != 0)
@@ -236,6 +257,294 @@ public class RenderBinary extends Result
 		}
 	}
 
+	/**
+	 * Send a file with support of conditional GET (Last-Modified / If-Modified-Since) 
+	 * and byte ranges (single range: 206, multiple ranges: 206 multipart/byteranges, 
+	 * unsatisfiable ranges: 416).
+	 * <p>
+	 * When the container supports sendfile (Tomcat <code>org.apache.tomcat.sendfile.support</code>) 
+	 * and the response is not wrapped (compression, cache capture), the transfer is handed over to 
+	 * the container; otherwise the file is copied with {@link FileChannel#transferTo}.
+	 * 
+	 * @param request The current request
+	 * @param response The current response
+	 * @param file A readable file
+	 * @param contentType The content type, or null to keep the one already set
+	 */
+	public static void sendFile(Request request, Response response, File file, String contentType) throws IOException
+	{
+		HttpServletResponse res = response.httpServletResponse();
+		long fileLength = file.length();
+		// HTTP dates have a precision of one second
+		long lastModified = file.lastModified() / 1000 * 1000;
+		
+		if(contentType != null)
+		{
+			response.contentType(contentType);
+		}
+		
+		res.setHeader("Accept-Ranges", "bytes");
+		if(lastModified > 0)
+		{
+			res.setDateHeader("Last-Modified", lastModified);
+		}
+		
+		String method = request.method();
+		boolean head = "HEAD".equalsIgnoreCase(method);
+		boolean conditional = head || "GET".equalsIgnoreCase(method);
+		
+		if(conditional && lastModified > 0 && response.status() == HttpStatus.OK 
+				&& isNotModifiedSince(request.raw(), lastModified))
+		{
+			response.status(HttpStatus.NOT_MODIFIED);
+			return;
+		}
+		
+		long[][] ranges = null;
+		String range = request.header("Range");
+		if(conditional && range != null && response.status() == HttpStatus.OK 
+				&& isRangeApplicable(request.raw(), lastModified))
+		{
+			ranges = parseRanges(range, fileLength);
+			
+			if(ranges != null && ranges.length == 0)
+			{
+				response.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+				res.setHeader("Content-Range", "bytes */" + fileLength);
+				return;
+			}
+		}
+		
+		// full content
+		if(ranges == null)
+		{
+			res.setHeader("Content-Length", String.valueOf(fileLength));
+			if(!head)
+			{
+				transfer(request, response, file, new long[][] { { 0, fileLength - 1 } }, null, null);
+			}
+			return;
+		}
+		
+		response.status(HttpStatus.PARTIAL_CONTENT);
+		
+		// single range
+		if(ranges.length == 1)
+		{
+			long[] _range = ranges[0];
+			res.setHeader("Content-Range", "bytes " + _range[0] + "-" + _range[1] + "/" + fileLength);
+			res.setHeader("Content-Length", String.valueOf(_range[1] - _range[0] + 1));
+			if(!head)
+			{
+				transfer(request, response, file, ranges, null, null);
+			}
+			return;
+		}
+		
+		// multiple ranges
+		String partType = res.getContentType() != null ? res.getContentType() : "application/octet-stream";
+		String boundary = "SPARKWEB_" + Long.toHexString(System.nanoTime()) + Long.toHexString(Double.doubleToLongBits(Math.random()));
+		
+		byte[][] partHeaders = new byte[ranges.length][];
+		long contentLength = 0;
+		for(int i = 0; i < ranges.length; i++)
+		{
+			partHeaders[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + partType + "\r\nContent-Range: bytes " 
+								+ ranges[i][0] + "-" + ranges[i][1] + "/" + fileLength + "\r\n\r\n").getBytes("ISO-8859-1");
+			contentLength += partHeaders[i].length + (ranges[i][1] - ranges[i][0] + 1);
+		}
+		
+		byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes("ISO-8859-1");
+		contentLength += closing.length;
+		
+		res.setContentType("multipart/byteranges; boundary=" + boundary);
+		res.setHeader("Content-Length", String.valueOf(contentLength));
+		
+		if(!head)
+		{
+			transfer(request, response, file, ranges, partHeaders, closing);
+		}
+	}
+	
+	/**
+	 * Transfer the ranges of the file to the response
+	 */
+	private static void transfer(Request request, Response response, File file, long[][] ranges, 
+			byte[][] partHeaders, byte[] closing) throws IOException
+	{
+		HttpServletResponse res = response.httpServletResponse();
+		
+		// let the container send the file (zero-copy), only possible for the raw container response
+		if(ranges.length == 1 && !(res instanceof HttpServletResponseWrapper) 
+				&& Boolean.TRUE.equals(request.raw().getAttribute(SENDFILE_SUPPORT_ATTR)))
+		{
+			request.raw().setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+			request.raw().setAttribute(SENDFILE_START_ATTR, Long.valueOf(ranges[0][0]));
+			request.raw().setAttribute(SENDFILE_END_ATTR, Long.valueOf(ranges[0][1] + 1));
+			return;
+		}
+		
+		OutputStream out = response.out();
+		WritableByteChannel target = Channels.newChannel(out);
+		FileInputStream fis = new FileInputStream(file);
+		try
+		{
+			FileChannel channel = fis.getChannel();
+			
+			for(int i = 0; i < ranges.length; i++)
+			{
+				if(partHeaders != null)
+				{
+					out.write(partHeaders[i]);
+				}
+				
+				long position = ranges[i][0];
+				long remaining = ranges[i][1] - ranges[i][0] + 1;
+				while(remaining > 0)
+				{
+					long transferred = channel.transferTo(position, remaining, target);
+					if(transferred <= 0)
+					{
+						break;
+					}
+					position += transferred;
+					remaining -= transferred;
+				}
+			}
+			
+			if(closing != null)
+			{
+				out.write(closing);
+			}
+			
+			out.flush();
+		} 
+		finally
+		{
+			try {
+				fis.close();
+			} catch(IOException e) {
+				// ignore
+			}
+		}
+	}
+	
+	private static boolean isNotModifiedSince(HttpServletRequest req, long lastModified)
+	{
+		try
+		{
+			long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+			return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+		} catch(IllegalArgumentException e)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * If-Range: the range applies only if the representation is unchanged. 
+	 * Files carry no entity tag, so only the date form can match.
+	 */
+	private static boolean isRangeApplicable(HttpServletRequest req, long lastModified)
+	{
+		String ifRange = req.getHeader("If-Range");
+		if(ifRange == null)
+		{
+			return true;
+		}
+		
+		if(ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+		{
+			return false;
+		}
+		
+		try
+		{
+			return req.getDateHeader("If-Range") == lastModified;
+		} catch(IllegalArgumentException e)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * Parse a Range header: <code>bytes=0-499</code>, <code>bytes=500-</code>, <code>bytes=-500</code>, 
+	 * <code>bytes=0-99,200-299</code>
+	 * 
+	 * @return the ranges as inclusive {start, end} pairs; an empty array if none is satisfiable; 
+	 * 			null if the header is malformed and must be ignored
+	 */
+	static long[][] parseRanges(String header, long length)
+	{
+		header = header.trim();
+		if(!header.regionMatches(true, 0, "bytes=", 0, 6))
+		{
+			return null;
+		}
+		
+		String[] specs = header.substring(6).split(",");
+		// too many ranges is a sign of abuse, send the whole content instead
+		if(specs.length > MAX_RANGES)
+		{
+			return null;
+		}
+		
+		List<long[]> ranges = new ArrayList<long[]>(specs.length);
+		
+		for(String spec : specs)
+		{
+			spec = spec.trim();
+			int dash = spec.indexOf('-');
+			if(dash == -1)
+			{
+				return null;
+			}
+			
+			long start;
+			long end;
+			try
+			{
+				if(dash == 0)
+				{
+					// suffix range: the last N bytes
+					long suffix = Long.parseLong(spec.substring(1).trim());
+					if(suffix <= 0)
+					{
+						continue;
+					}
+					start = Math.max(length - suffix, 0);
+					end = length - 1;
+				}
+				else
+				{
+					start = Long.parseLong(spec.substring(0, dash).trim());
+					String last = spec.substring(dash + 1).trim();
+					end = last.length() == 0 ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+					
+					if(last.length() > 0 && Long.parseLong(last) < start)
+					{
+						return null;
+					}
+				}
+			} catch(NumberFormatException e)
+			{
+				return null;
+			}
+			
+			if(start < 0)
+			{
+				return null;
+			}
+			
+			if(start < length && start <= end)
+			{
+				ranges.add(new long[] { start, end });
+			}
+		}
+		
+		return ranges.toArray(new long[ranges.size()][]);
+	}
+
 	private static boolean headerContains(String[] headers, String header)
 	{
 		if(headers == null || headers.length == 0)
@@ -0,0 +1,174 @@
+package com.sparkweb.web.result;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import com.sparkweb.exception.UnexpectedException;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.Response;
+
+/**
+ * 200 OK with a textual body (text, html, json, xml).
+ * <p>
+ * The body is encoded once per encoding and the encoded bytes are kept together
+ * with their strong ETag, so a result that is rendered more than once (e.g. a shared
+ * constant result) never re-encodes nor re-hashes its content. When ETag is enabled
+ * by WebSettings, a matching If-None-Match is answered with 304 and no body.
+ */
+public abstract class RenderContent extends Result
+{
+	private static final long	serialVersionUID	= -4260391853815426487L;
+
+	private String				content;
+
+	// the last encoded body, replaced as a whole so that concurrent readers always see a consistent value
+	private transient volatile Encoded encoded;
+
+	/**
+	 * The body will be rendered lazily by {@link #renderContent()}
+	 */
+	protected RenderContent() {
+	}
+
+	protected RenderContent(CharSequence content, String defaultContent) {
+		this.content = content != null ? content.toString() : defaultContent;
+	}
+
+	/**
+	 * Use an already encoded body
+	 *
+	 * @param bytes The encoded body
+	 * @param encoding The encoding of the bytes
+	 */
+	protected RenderContent(byte[] bytes, String encoding) {
+		if(bytes == null || encoding == null)
+		{
+			throw new IllegalArgumentException("The bytes and the encoding must not be null!");
+		}
+
+		this.encoded = new Encoded(encoding, bytes);
+	}
+
+	/**
+	 * The mime type of the body, without charset
+	 */
+	protected abstract String mimeType();
+
+	/**
+	 * Render the textual body of a result created without content
+	 */
+	protected String renderContent()
+	{
+		throw new IllegalStateException("The content of " + getClass().getName() + " has not been set!");
+	}
+
+	/**
+	 * The textual body
+	 */
+	public String getContent()
+	{
+		if(this.content == null)
+		{
+			Encoded _encoded = this.encoded;
+			if(_encoded == null)
+			{
+				this.content = renderContent();
+				return this.content;
+			}
+
+			try
+			{
+				this.content = new String(_encoded.bytes, _encoded.encoding);
+			} catch(UnsupportedEncodingException e)
+			{
+				throw new UnexpectedException(e);
+			}
+		}
+
+		return this.content;
+	}
+
+	/**
+	 * The body encoded with the given encoding
+	 */
+	public byte[] getBytes(String encoding)
+	{
+		return encode(encoding).bytes;
+	}
+
+	/**
+	 * The strong ETag of the body encoded with the given encoding
+	 */
+	public String getEtag(String encoding)
+	{
+		return encode(encoding).etag();
+	}
+
+	private Encoded encode(String encoding)
+	{
+		Encoded _encoded = this.encoded;
+		if(_encoded != null && _encoded.encoding.equalsIgnoreCase(encoding))
+		{
+			return _encoded;
+		}
+
+		try
+		{
+			_encoded = new Encoded(encoding, getContent().getBytes(encoding));
+		} catch(UnsupportedEncodingException e)
+		{
+			throw new UnexpectedException(e);
+		}
+
+		this.encoded = _encoded;
+		return _encoded;
+	}
+
+	@Override
+	public void apply(Request request, Response response)
+	{
+		// rendered and encoded before anything is written, a failure is thrown to the action's handlers
+		String encoding = getEncoding();
+		Encoded _encoded = encode(encoding);
+
+		try
+		{
+			response.contentType(mimeType() + "; charset=" + encoding);
+
+			if(etagEnabled() && checkNotModified(request, response, _encoded.etag()))
+			{
+				return;
+			}
+
+			response.httpServletResponse().setContentLength(_encoded.bytes.length);
+			response.out().write(_encoded.bytes);
+		} catch(IOException e)
+		{
+			e.printStackTrace();
+			//throw new UnexpectedException(e);
+		}
+	}
+
+	private static final class Encoded
+	{
+		final String		encoding;
+		final byte[]		bytes;
+		private String		etag;
+
+		Encoded(String encoding, byte[] bytes) {
+			this.encoding = encoding;
+			this.bytes = bytes;
+		}
+
+		String etag()
+		{
+			// computing twice under a race is harmless, the result is the same
+			if(this.etag == null)
+			{
+				this.etag = computeEtag(this.bytes);
+			}
+
+			return this.etag;
+		}
+	}
+}
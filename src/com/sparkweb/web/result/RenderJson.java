@@ -1,49 +1,120 @@
 package com.sparkweb.web.result;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.sparkweb.exception.UnexpectedException;
+import com.sparkweb.web.JSONResolver;
 import com.sparkweb.web.Request;
 import com.sparkweb.web.Response;
 import com.sparkweb.web.SparkConfig;
+import com.sparkweb.web.StreamingJSONResolver;
 
 /**
  * 200 OK with application/json
+ * <p>
+ * An object is serialized when the result is created, so that a serialization failure
+ * is thrown by the action. With a {@link StreamingJSONResolver} (and ETag disabled) it is
+ * kept and written straight into the response output stream when the result is applied,
+ * without building the whole JSON string; a failure while streaming is then thrown as an
+ * UnexpectedException.
  */
-public class RenderJson extends Result
+public class RenderJson extends RenderContent
 {
 	private static final long	serialVersionUID	= 8813549235036655676L;
 
-	private String				json = "{}";
+	private transient Object	object;
 
 	public RenderJson(Object o)
 	{
-		if(SparkConfig.getConfig().jsonResolver() == null)
+		checkResolver("Response.json(Object)");
+		this.object = o;
+
+		if(!streaming())
 		{
-			throw new NullPointerException("The JSONResolver must not be null, if you use `Response.json(Object)` to response current requesting!");
+			getContent();
+			this.object = null;
 		}
-		
-		if(o != null)
+	}
+
+	public RenderJson(CharSequence jsonString) {
+		super(jsonString, "{}");
+	}
+
+	/**
+	 * @param bytes The already encoded JSON data
+	 * @param encoding The encoding of the bytes
+	 */
+	public RenderJson(byte[] bytes, String encoding) {
+		super(bytes, encoding);
+	}
+
+	static void checkResolver(String usage)
+	{
+		if(SparkConfig.getConfig().jsonResolver() == null)
 		{
-			this.json = SparkConfig.getConfig().jsonResolver().toJSONString(o);
+			throw new NullPointerException("The JSONResolver must not be null, if you use `" + usage + "` to response current requesting!");
 		}
 	}
-	
-	public RenderJson(CharSequence jsonString) {
-		if(jsonString != null)
+
+	/**
+	 * Whether the object can be streamed, the ETag needs the whole body
+	 */
+	private static boolean streaming()
+	{
+		return !etagEnabled() && SparkConfig.getConfig().jsonResolver() instanceof StreamingJSONResolver;
+	}
+
+	/**
+	 * Serialize an object into the writer, streaming when the resolver supports it
+	 */
+	static void writeJSON(Object o, Writer writer) throws IOException
+	{
+		JSONResolver resolver = SparkConfig.getConfig().jsonResolver();
+		if(resolver instanceof StreamingJSONResolver)
+		{
+			((StreamingJSONResolver) resolver).writeJSONString(o, writer);
+		}
+		else
 		{
-			this.json = jsonString.toString();
+			writer.write(resolver.toJSONString(o));
 		}
 	}
 
+	@Override
+	protected String renderContent()
+	{
+		String json = this.object != null ? SparkConfig.getConfig().jsonResolver().toJSONString(this.object) : null;
+		return json != null ? json : "{}";
+	}
+
 	@Override
 	public void apply(Request request, Response response)
 	{
+		if(this.object == null)
+		{
+			super.apply(request, response);
+			return;
+		}
+
 		try
 		{
-			response.contentType("application/json; charset=" + getEncoding());
-			response.out().write(json.getBytes(getEncoding()));
-		} catch(Exception e)
+			String encoding = getEncoding();
+			response.contentType(mimeType() + "; charset=" + encoding);
+
+			Writer writer = new OutputStreamWriter(response.out(), encoding);
+			writeJSON(this.object, writer);
+			writer.flush();
+		} catch(IOException e)
 		{
-			e.printStackTrace();
-			//throw new UnexpectedException(e);
+			throw new UnexpectedException(e);
 		}
 	}
+
+	@Override
+	protected String mimeType()
+	{
+		return "application/json";
+	}
 }
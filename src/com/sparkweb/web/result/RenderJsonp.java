@@ -1,12 +1,22 @@
 package com.sparkweb.web.result;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
 import com.sparkweb.exception.UnexpectedException;
 import com.sparkweb.web.Request;
 import com.sparkweb.web.Response;
 import com.sparkweb.web.SparkConfig;
+import com.sparkweb.web.StreamingJSONResolver;
 
 /**
  * jsonp
+ * <p>
+ * An object is serialized when the result is created, so that a serialization failure is thrown
+ * by the action. With a {@link StreamingJSONResolver} it is kept and written straight into the
+ * response output stream when the result is applied; a failure while streaming is then thrown
+ * as an UnexpectedException.
  */
 public class RenderJsonp extends Result
 {
@@ -14,14 +24,16 @@ public class RenderJsonp extends Result
 
 	private static final String	JSONP_CALLBACK = "callback";
 	private String				json = "{}";
+	private transient Object	object;
 
 	public RenderJsonp(Object o) {
-		if(SparkConfig.getConfig().jsonResolver() == null)
+		RenderJson.checkResolver("Response.jsonp(Object)");
+
+		if(SparkConfig.getConfig().jsonResolver() instanceof StreamingJSONResolver)
 		{
-			throw new NullPointerException("The JSONResolver must not be null, if you use `Response.jsonp(Object)` to response current requesting!");
+			this.object = o;
 		}
-		
-		if(o != null)
+		else if(o != null)
 		{
 			this.json = SparkConfig.getConfig().jsonResolver().toJSONString(o);
 		}
@@ -54,14 +66,22 @@ public class RenderJsonp extends Result
 		{
 			response.contentType("application/javascript");
 			
-			StringBuilder sb = new StringBuilder();
-			sb.append(callback).append('(').append(this.json).append(')');
-			
-			response.print(sb.toString());
-		} catch(Exception e)
+			Writer writer = new OutputStreamWriter(response.out(), response.encoding());
+			writer.write(callback);
+			writer.write('(');
+			if(this.object != null)
+			{
+				RenderJson.writeJSON(this.object, writer);
+			}
+			else
+			{
+				writer.write(this.json);
+			}
+			writer.write(')');
+			writer.flush();
+		} catch(IOException e)
 		{
-			e.printStackTrace();
-			//throw new UnexpectedException(e);
+			throw new UnexpectedException(e);
 		}
 	}
 }
@@ -0,0 +1,263 @@
+package com.sparkweb.web.result;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+
+import com.sparkweb.exception.UnexpectedException;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.Response;
+import com.sparkweb.web.StreamWriter;
+
+/**
+ * 200 OK with a body produced incrementally (chunked transfer encoding).
+ * <p>
+ * The body comes from a {@link StreamWriter} or from an Iterator of records written
+ * one per line (CSV, NDJSON...). It is buffered in chunks of <code>chunkSize</code> bytes,
+ * each full chunk is flushed to the client. The chunk buffer is reused by the thread, and
+ * a slow client blocks the producer on the write instead of letting the data pile up in memory.
+ * <p>
+ * Unlike the other results, a failure while streaming is thrown (as an UnexpectedException)
+ * so that the @Finally interceptors see it.
+ */
+public class RenderStream extends Result
+{
+	private static final long				serialVersionUID	= 3051962472818637214L;
+
+	public static final int					DEFAULT_CHUNK_SIZE	= 8192;
+	// larger chunk buffers are not kept by the thread
+	private static final int				MAX_REUSED_CHUNK	= 64 * 1024;
+
+	private static final ThreadLocal<byte[]>	CHUNKS			= new ThreadLocal<byte[]>();
+
+	private final String					contentType;
+	private final int						chunkSize;
+	private transient StreamWriter			writer;
+	private transient Iterator<?>			records;
+
+	/**
+	 * @param contentType The content type, the response encoding is appended for text types
+	 * @param writer Writes the body
+	 * @param chunkSize The size of the chunks flushed to the client
+	 */
+	public RenderStream(String contentType, StreamWriter writer, int chunkSize) {
+		if(writer == null)
+		{
+			throw new IllegalArgumentException("The StreamWriter must not be null!");
+		}
+
+		this.contentType = contentType;
+		this.writer = writer;
+		this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+	}
+
+	/**
+	 * @param contentType The content type, the response encoding is appended for text types
+	 * @param records The records, each one is written with its toString() followed by '\n';
+	 *            the iterator is closed at the end if it is Closeable
+	 * @param chunkSize The size of the chunks flushed to the client
+	 */
+	public RenderStream(String contentType, Iterator<?> records, int chunkSize) {
+		if(records == null)
+		{
+			throw new IllegalArgumentException("The records must not be null!");
+		}
+
+		this.contentType = contentType;
+		this.records = records;
+		this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+	}
+
+	@Override
+	public void apply(Request request, Response response)
+	{
+		String encoding = getEncoding();
+		if(this.contentType != null)
+		{
+			response.contentType(this.contentType.startsWith("text/") && this.contentType.indexOf("charset") == -1
+					? this.contentType + "; charset=" + encoding : this.contentType);
+		}
+
+		byte[] chunk = borrowChunk();
+		ChunkedOutputStream out = null;
+		try
+		{
+			out = new ChunkedOutputStream(response, chunk, this.chunkSize);
+
+			if(this.writer != null)
+			{
+				this.writer.write(out);
+			}
+			else
+			{
+				writeRecords(out, encoding);
+			}
+
+			out.finish();
+		} catch(IOException e)
+		{
+			throw new UnexpectedException(e);
+		} finally
+		{
+			if(out != null)
+			{
+				out.closed = true;
+			}
+			giveBackChunk(chunk);
+			closeRecords();
+		}
+	}
+
+	private void writeRecords(OutputStream out, String encoding) throws IOException
+	{
+		Writer w = new OutputStreamWriter(out, encoding);
+		while(this.records.hasNext())
+		{
+			w.write(String.valueOf(this.records.next()));
+			w.write('\n');
+		}
+		w.flush();
+	}
+
+	private void closeRecords()
+	{
+		if(this.records instanceof Closeable)
+		{
+			try
+			{
+				((Closeable) this.records).close();
+			} catch(IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+
+	private byte[] borrowChunk()
+	{
+		byte[] chunk = CHUNKS.get();
+		if(chunk != null && chunk.length >= this.chunkSize)
+		{
+			CHUNKS.set(null);
+			return chunk;
+		}
+
+		return new byte[this.chunkSize];
+	}
+
+	private static void giveBackChunk(byte[] chunk)
+	{
+		if(chunk.length <= MAX_REUSED_CHUNK)
+		{
+			byte[] cached = CHUNKS.get();
+			if(cached == null || cached.length < chunk.length)
+			{
+				CHUNKS.set(chunk);
+			}
+		}
+	}
+
+	/**
+	 * Buffers the body in fixed-size chunks and flushes every full chunk to the client
+	 */
+	private static final class ChunkedOutputStream extends OutputStream
+	{
+		private final Response	response;
+		private final byte[]	chunk;
+		private final int		chunkSize;
+		private OutputStream	out;
+		private int				count	= 0;
+		// the chunk buffer goes back to the thread once the result is applied
+		boolean					closed	= false;
+
+		ChunkedOutputStream(Response response, byte[] chunk, int chunkSize) {
+			this.response = response;
+			this.chunk = chunk;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			ensureOpen();
+			if(this.count == this.chunkSize)
+			{
+				flushChunk();
+			}
+			this.chunk[this.count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			ensureOpen();
+			while(len > 0)
+			{
+				if(this.count == this.chunkSize)
+				{
+					flushChunk();
+				}
+
+				int n = Math.min(len, this.chunkSize - this.count);
+				System.arraycopy(b, off, this.chunk, this.count, n);
+				this.count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			ensureOpen();
+			flushChunk();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			// the response output stream is closed by the container
+		}
+
+		void finish() throws IOException
+		{
+			if(this.count > 0)
+			{
+				target().write(this.chunk, 0, this.count);
+				this.count = 0;
+			}
+		}
+
+		private void flushChunk() throws IOException
+		{
+			if(this.count > 0)
+			{
+				target().write(this.chunk, 0, this.count);
+				this.count = 0;
+			}
+
+			this.response.flush();
+		}
+
+		private OutputStream target() throws IOException
+		{
+			if(this.out == null)
+			{
+				this.out = this.response.out();
+			}
+
+			return this.out;
+		}
+
+		private void ensureOpen() throws IOException
+		{
+			if(this.closed)
+			{
+				throw new IOException("The stream has already been closed!");
+			}
+		}
+	}
+}
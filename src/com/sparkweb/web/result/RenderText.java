@@ -1,36 +1,28 @@
 package com.sparkweb.web.result;
 
-import com.sparkweb.web.Request;
-import com.sparkweb.web.Response;
-
 /**
  * 200 OK with a text/plain
  */
-public class RenderText extends Result
+public class RenderText extends RenderContent
 {
 	private static final long	serialVersionUID	= 3038920787343412978L;
 
-	private String				text				= "";
-
 	public RenderText(CharSequence _text) {
-		if(_text != null)
-		{
-			this.text = _text.toString();
-		}
+		super(_text, "");
+	}
+
+	/**
+	 * @param bytes The already encoded text
+	 * @param encoding The encoding of the bytes
+	 */
+	public RenderText(byte[] bytes, String encoding) {
+		super(bytes, encoding);
 	}
 
 	@Override
-	public void apply(Request request, Response response)
+	protected String mimeType()
 	{
-		try
-		{
-			response.contentType("text/plain; charset=" + getEncoding());
-			response.out().write(this.text.getBytes(getEncoding()));
-		} catch(Exception e)
-		{
-			e.printStackTrace();
-			//throw new UnexpectedException(e);
-		}
+		return "text/plain";
 	}
 
 }
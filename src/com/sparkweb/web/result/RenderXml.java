@@ -1,36 +1,28 @@
 package com.sparkweb.web.result;
 
-import com.sparkweb.web.Request;
-import com.sparkweb.web.Response;
-
 /**
  * 200 OK with a text/xml
  */
-public class RenderXml extends Result
+public class RenderXml extends RenderContent
 {
 	private static final long	serialVersionUID	= 3038920787343412978L;
 
-	private String				xml				= "";
-
 	public RenderXml(CharSequence _xml) {
-		if(_xml != null)
-		{
-			this.xml = _xml.toString();
-		}
+		super(_xml, "");
+	}
+
+	/**
+	 * @param bytes The already encoded xml
+	 * @param encoding The encoding of the bytes
+	 */
+	public RenderXml(byte[] bytes, String encoding) {
+		super(bytes, encoding);
 	}
 
 	@Override
-	public void apply(Request request, Response response)
+	protected String mimeType()
 	{
-		try
-		{
-			response.contentType("text/xml; charset=" + getEncoding());
-			response.out().write(this.xml.getBytes(getEncoding()));
-		} catch(Exception e)
-		{
-			e.printStackTrace();
-			//throw new UnexpectedException(e);
-		}
+		return "text/xml";
 	}
 
 }
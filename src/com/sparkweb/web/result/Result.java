@@ -1,9 +1,14 @@
 package com.sparkweb.web.result;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import com.sparkweb.exception.FastRuntimeException;
+import com.sparkweb.exception.UnexpectedException;
 import com.sparkweb.web.HttpContext;
 import com.sparkweb.web.Request;
 import com.sparkweb.web.Response;
+import com.sparkweb.web.SparkConfig;
 
 /**
  * Result support
@@ -11,6 +16,8 @@ import com.sparkweb.web.Response;
 public abstract class Result extends FastRuntimeException
 {
 	private static final long	serialVersionUID	= -6812643417212458152L;
+	
+	private static final char[]	HEX					= "0123456789abcdef".toCharArray();
 
 	public Result() {
 		super();
@@ -31,4 +38,123 @@ public abstract class Result extends FastRuntimeException
 		return HttpContext.current().response().encoding();
 	}
 	
+	/**
+	 * Whether ETag and conditional GET (If-None-Match) are enabled by WebSettings
+	 */
+	protected static boolean etagEnabled()
+	{
+		return SparkConfig.getConfig().extendedSettings() != null && SparkConfig.getConfig().extendedSettings().etag();
+	}
+	
+	/**
+	 * Compute a strong ETag (quoted MD5 hex) of the response body
+	 */
+	protected static String computeEtag(byte[] body)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+			char[] etag = new char[digest.length * 2 + 2];
+			etag[0] = '"';
+			for(int i = 0; i < digest.length; i++)
+			{
+				etag[i * 2 + 1] = HEX[(digest[i] >> 4) & 0x0f];
+				etag[i * 2 + 2] = HEX[digest[i] & 0x0f];
+			}
+			etag[etag.length - 1] = '"';
+			
+			return new String(etag);
+		} catch(NoSuchAlgorithmException e)
+		{
+			throw new UnexpectedException(e);
+		}
+	}
+	
+	/**
+	 * Send the ETag header, and answer a 304 Not Modified (without body) 
+	 * if the request is a GET/HEAD whose If-None-Match matches the ETag.
+	 * 
+	 * @return true if 304 has been sent and the body must not be written
+	 */
+	protected static boolean checkNotModified(Request request, Response response, String etag)
+	{
+		return checkNotModified(request, response, etag, null);
+	}
+	
+	/**
+	 * Same as {@link #checkNotModified(Request, Response, String)} for a body sent with a content coding:
+	 * the ETag header marks the coded representation ("xxx" --> "xxx-gzip") like the compression stage does,
+	 * while If-None-Match is compared with the ETag of the identity body.
+	 * 
+	 * @param coding The content coding (gzip, deflate), null for the identity body
+	 */
+	protected static boolean checkNotModified(Request request, Response response, String etag, String coding)
+	{
+		String headerEtag = etag;
+		if(coding != null && etag.endsWith("\""))
+		{
+			headerEtag = etag.substring(0, etag.length() - 1) + '-' + coding + '"';
+		}
+		response.httpServletResponse().setHeader("ETag", headerEtag);
+		
+		if(response.status() != 200)
+		{
+			return false;
+		}
+		
+		String method = request.method();
+		if(!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method))
+		{
+			return false;
+		}
+		
+		String ifNoneMatch = request.header("If-None-Match");
+		if(ifNoneMatch == null || !etagMatches(ifNoneMatch, etag))
+		{
+			return false;
+		}
+		
+		response.status(304);
+		return true;
+	}
+	
+	/**
+	 * Weak comparison of an If-None-Match header value against an ETag
+	 */
+	static boolean etagMatches(String ifNoneMatch, String etag)
+	{
+		String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+		
+		for(String candidate : ifNoneMatch.split(","))
+		{
+			candidate = candidate.trim();
+			if("*".equals(candidate))
+			{
+				return true;
+			}
+			
+			if(candidate.startsWith("W/"))
+			{
+				candidate = candidate.substring(2);
+			}
+			
+			// the compression stage marks compressed representations: "xxx" --> "xxx-gzip"
+			if(candidate.endsWith("-gzip\""))
+			{
+				candidate = candidate.substring(0, candidate.length() - 6) + '"';
+			}
+			else if(candidate.endsWith("-deflate\""))
+			{
+				candidate = candidate.substring(0, candidate.length() - 9) + '"';
+			}
+			
+			if(candidate.equals(opaque))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
 }
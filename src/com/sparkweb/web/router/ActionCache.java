@@ -0,0 +1,248 @@
+package com.sparkweb.web.router;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.sparkweb.cache.CacheManager;
+import com.sparkweb.util.TimeUtils;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.Response;
+import com.sparkweb.web.annotation.CacheFor;
+import com.sparkweb.web.result.CachedResult;
+
+/**
+ * 使用 @CacheFor 标注的 Action 的响应缓存规则，在路由注册时生成
+ * <p>
+ * 为了避免热点缓存过期时大量并发请求同时执行 Action（缓存击穿），支持：
+ * <ul>
+ * <li>singleFlight：同一个缓存key上并发的缓存未命中请求，只有一个请求执行 Action，其它请求等待并共享它的结果；</li>
+ * <li>staleWhileRevalidate：缓存过期后的一段时间内仍然返回旧结果，同时只由一个请求负责刷新缓存。</li>
+ * </ul>
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class ActionCache
+{
+	// 负责执行 Action 的请求上记录的 Flight
+	private static final String					FLIGHT_ATTR_NAME	= "$__SPARKWEB_cache_flight$";
+
+	private final String						region;
+	private final String						key;
+	// 缓存时间（秒）
+	private final int							expiration;
+
+	private final boolean						singleFlight;
+	// 等待其它请求执行结果的最长时间（毫秒）
+	private final long							waitTimeout;
+	// 过期后仍然可以返回旧结果的时间（秒）
+	private final int							staleWhileRevalidate;
+
+	// 正在执行中的请求，每个缓存key最多只有一个
+	private final ConcurrentMap<String, Flight>	flights	= new ConcurrentHashMap<String, Flight>(16);
+
+	ActionCache(CacheFor cacheFor) {
+		this.region = cacheFor.region().trim();
+		this.key = cacheFor.key().trim();
+		this.expiration = parseDuration(cacheFor.value());
+		this.singleFlight = cacheFor.singleFlight();
+		this.waitTimeout = parseDuration(cacheFor.waitTimeout()) * 1000L;
+		this.staleWhileRevalidate = cacheFor.staleWhileRevalidate().trim().length() > 0
+										? parseDuration(cacheFor.staleWhileRevalidate().trim()) : 0;
+	}
+
+	/**
+	 * 只有 GET、HEAD 请求可以使用缓存
+	 */
+	boolean accepts(Request request)
+	{
+		String method = request.method();
+		return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+	}
+
+	/**
+	 * 缓存的唯一标识：@CacheFor 中定义的 key，或者请求的 url + queryString
+	 */
+	String keyFor(Request request)
+	{
+		if(this.key.length() > 0)
+		{
+			return this.key;
+		}
+
+		String queryString = request.queryString();
+		return queryString.length() > 0 ? "urlcache:" + request.url() + '?' + queryString : "urlcache:" + request.url();
+	}
+
+	/**
+	 * 获取当前请求可以直接使用的缓存结果
+	 *
+	 * @param request 当前请求
+	 * @param cacheKey 缓存key
+	 * @return 缓存结果；返回 null 时需要执行 Action，此时当前请求可能已经成为负责刷新缓存的请求
+	 */
+	CachedResult lookup(Request request, String cacheKey)
+	{
+		Object value = CacheManager.get(this.region, cacheKey);
+		CachedResult cached = value instanceof CachedResult ? (CachedResult) value : null;
+
+		if(cached != null && isFresh(cached))
+		{
+			return cached;
+		}
+
+		// HEAD 请求的响应没有内容，不能负责刷新缓存
+		boolean canLead = "GET".equalsIgnoreCase(request.method());
+
+		// 旧结果仍然可用：只有一个请求负责刷新，其它请求直接返回旧结果
+		if(cached != null && this.staleWhileRevalidate > 0)
+		{
+			if(canLead && startFlight(request, cacheKey) == null)
+			{
+				return null;
+			}
+
+			return cached;
+		}
+
+		if(this.singleFlight)
+		{
+			Flight flight = canLead ? startFlight(request, cacheKey) : this.flights.get(cacheKey);
+			if(flight != null)
+			{
+				// 等待超时或者执行的结果不能缓存时，自行执行 Action
+				return flight.await(this.waitTimeout);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * 开始记录当前请求的响应，只有 GET 请求的响应才会被缓存
+	 *
+	 * @return 响应记录，不需要记录时返回 null
+	 */
+	CacheCaptureResponse capture(Request request, Response response)
+	{
+		if(!"GET".equalsIgnoreCase(request.method()))
+		{
+			return null;
+		}
+
+		CacheCaptureResponse capture = new CacheCaptureResponse(response.httpServletResponse());
+		response.httpServletResponse(capture);
+
+		return capture;
+	}
+
+	/**
+	 * 将记录的响应放入缓存，并共享给正在等待的请求
+	 */
+	void store(Request request, String cacheKey, CacheCaptureResponse capture)
+	{
+		if(!capture.isCacheable())
+		{
+			return;
+		}
+
+		CachedResult cached = capture.toCachedResult();
+		CacheManager.set(this.region, cacheKey, cached, this.expiration + this.staleWhileRevalidate);
+
+		Flight flight = ownedFlight(request, cacheKey);
+		if(flight != null)
+		{
+			flight.result = cached;
+		}
+	}
+
+	/**
+	 * 结束记录，还原被包装的响应，并唤醒正在等待的请求
+	 */
+	void release(Request request, String cacheKey, Response response, CacheCaptureResponse capture)
+	{
+		capture.finish();
+
+		if(response.httpServletResponse() == capture)
+		{
+			response.httpServletResponse((HttpServletResponse) capture.getResponse());
+		}
+
+		Flight flight = ownedFlight(request, cacheKey);
+		if(flight != null)
+		{
+			request.attr(FLIGHT_ATTR_NAME, null);
+			this.flights.remove(cacheKey, flight);
+			flight.latch.countDown();
+		}
+	}
+
+	private boolean isFresh(CachedResult cached)
+	{
+		return System.currentTimeMillis() - cached.getCreatedAt() < this.expiration * 1000L;
+	}
+
+	/**
+	 * 尝试成为负责执行 Action 的请求
+	 *
+	 * @return 成功时返回 null；已经有其它请求正在执行时返回它的 Flight
+	 */
+	private Flight startFlight(Request request, String cacheKey)
+	{
+		Flight flight = new Flight();
+		Flight running = this.flights.putIfAbsent(cacheKey, flight);
+		if(running == null)
+		{
+			// 异步Action可能在其它线程上完成，Flight 归属于请求而不是线程
+			request.attr(FLIGHT_ATTR_NAME, flight);
+		}
+
+		return running;
+	}
+
+	private Flight ownedFlight(Request request, String cacheKey)
+	{
+		Flight flight = this.flights.get(cacheKey);
+		return flight != null && flight == request.attr(FLIGHT_ATTR_NAME) ? flight : null;
+	}
+
+	private static int parseDuration(String duration)
+	{
+		try
+		{
+			return TimeUtils.parseDuration(duration);
+		} catch(IllegalArgumentException e)
+		{
+			throw new RouteException("Invalid @CacheFor duration: " + duration, e);
+		}
+	}
+
+	/**
+	 * 同一个缓存key上正在执行中的请求
+	 */
+	private static final class Flight
+	{
+		final CountDownLatch		latch	= new CountDownLatch(1);
+		volatile CachedResult		result;
+
+		CachedResult await(long timeout)
+		{
+			try
+			{
+				if(this.latch.await(timeout, TimeUnit.MILLISECONDS))
+				{
+					return this.result;
+				}
+			} catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package com.sparkweb.web.router;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.sparkweb.web.result.CachedResult;
+
+/**
+ * 用于 @CacheFor 的响应包装 <br>
+ * 响应内容照常写入客户端，同时记录下响应状态、响应头和响应内容，用于生成 {@link CachedResult}。
+ * 以下情况的响应不会被缓存：状态不是 200、sendError/sendRedirect、设置了 Cookie、响应内容超过上限。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class CacheCaptureResponse extends HttpServletResponseWrapper
+{
+	// 允许缓存的最大响应内容
+	private static final int			MAX_CAPTURE_SIZE	= 1024 * 1024;
+
+	private int							status				= HttpServletResponse.SC_OK;
+	private boolean						cacheable			= true;
+	private final List<String[]>		headers				= new ArrayList<String[]>(8);
+
+	private final ByteArrayOutputStream	buffer				= new ByteArrayOutputStream(1024);
+	private ServletOutputStream			outputStream		= null;
+	private PrintWriter					writer				= null;
+
+	CacheCaptureResponse(HttpServletResponse res) {
+		super(res);
+	}
+
+	/**
+	 * 是否可以缓存
+	 */
+	boolean isCacheable()
+	{
+		return this.cacheable && this.status == HttpServletResponse.SC_OK;
+	}
+
+	/**
+	 * 根据记录的响应生成缓存结果
+	 */
+	CachedResult toCachedResult()
+	{
+		finish();
+
+		return new CachedResult(this.status, getContentType(), this.headers.toArray(new String[this.headers.size()][]),
+				this.buffer.toByteArray());
+	}
+
+	/**
+	 * 将写入 Writer 中的内容刷新到输出流中
+	 */
+	void finish()
+	{
+		if(this.writer != null)
+		{
+			this.writer.flush();
+		}
+	}
+
+	@Override
+	public void setStatus(int sc)
+	{
+		this.status = sc;
+		super.setStatus(sc);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public void setStatus(int sc, String sm)
+	{
+		this.status = sc;
+		super.setStatus(sc, sm);
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException
+	{
+		this.status = sc;
+		this.cacheable = false;
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException
+	{
+		this.status = sc;
+		this.cacheable = false;
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException
+	{
+		this.cacheable = false;
+		super.sendRedirect(location);
+	}
+
+	@Override
+	public void addCookie(Cookie cookie)
+	{
+		// 与用户相关的响应不能共享
+		this.cacheable = false;
+		super.addCookie(cookie);
+	}
+
+	@Override
+	public void setHeader(String name, String value)
+	{
+		recordHeader(name, value, true);
+		super.setHeader(name, value);
+	}
+
+	@Override
+	public void addHeader(String name, String value)
+	{
+		recordHeader(name, value, false);
+		super.addHeader(name, value);
+	}
+
+	@Override
+	public void setIntHeader(String name, int value)
+	{
+		recordHeader(name, String.valueOf(value), true);
+		super.setIntHeader(name, value);
+	}
+
+	@Override
+	public void addIntHeader(String name, int value)
+	{
+		recordHeader(name, String.valueOf(value), false);
+		super.addIntHeader(name, value);
+	}
+
+	@Override
+	public void setDateHeader(String name, long date)
+	{
+		recordHeader(name, formatDate(date), true);
+		super.setDateHeader(name, date);
+	}
+
+	@Override
+	public void addDateHeader(String name, long date)
+	{
+		recordHeader(name, formatDate(date), false);
+		super.addDateHeader(name, date);
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException
+	{
+		if(this.writer != null)
+		{
+			throw new IllegalStateException("getWriter() has already been called on this response.");
+		}
+
+		return captureStream();
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException
+	{
+		if(this.writer == null)
+		{
+			if(this.outputStream != null)
+			{
+				throw new IllegalStateException("getOutputStream() has already been called on this response.");
+			}
+
+			this.writer = new PrintWriter(new OutputStreamWriter(captureStream(), getCharacterEncoding()));
+		}
+
+		return this.writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException
+	{
+		finish();
+		super.flushBuffer();
+	}
+
+	@Override
+	public void reset()
+	{
+		super.reset();
+		this.status = HttpServletResponse.SC_OK;
+		this.headers.clear();
+		this.buffer.reset();
+	}
+
+	@Override
+	public void resetBuffer()
+	{
+		super.resetBuffer();
+		this.buffer.reset();
+	}
+
+	private ServletOutputStream captureStream() throws IOException
+	{
+		if(this.outputStream == null)
+		{
+			final ServletOutputStream out = super.getOutputStream();
+
+			this.outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException
+				{
+					out.write(b);
+					capture(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException
+				{
+					out.write(b, off, len);
+					capture(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException
+				{
+					out.flush();
+				}
+
+				@Override
+				public void close() throws IOException
+				{
+					out.close();
+				}
+			};
+		}
+
+		return this.outputStream;
+	}
+
+	private void capture(int b)
+	{
+		if(this.cacheable)
+		{
+			this.buffer.write(b);
+			checkCaptureSize();
+		}
+	}
+
+	private void capture(byte[] b, int off, int len)
+	{
+		if(this.cacheable)
+		{
+			this.buffer.write(b, off, len);
+			checkCaptureSize();
+		}
+	}
+
+	private void checkCaptureSize()
+	{
+		if(this.buffer.size() > MAX_CAPTURE_SIZE)
+		{
+			this.cacheable = false;
+			this.buffer.reset();
+		}
+	}
+
+	private void recordHeader(String name, String value, boolean replace)
+	{
+		if(name == null)
+		{
+			return;
+		}
+
+		// 回放时根据内容重新计算
+		if("Content-Length".equalsIgnoreCase(name))
+		{
+			return;
+		}
+
+		if("Set-Cookie".equalsIgnoreCase(name))
+		{
+			this.cacheable = false;
+			return;
+		}
+
+		if(replace)
+		{
+			for(Iterator<String[]> it = this.headers.iterator(); it.hasNext();)
+			{
+				if(it.next()[0].equalsIgnoreCase(name))
+				{
+					it.remove();
+				}
+			}
+		}
+
+		if(value != null)
+		{
+			this.headers.add(new String[] { name, value });
+		}
+	}
+
+	private static String formatDate(long date)
+	{
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format.format(new Date(date));
+	}
+}
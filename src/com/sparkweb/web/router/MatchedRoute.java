@@ -1,6 +1,7 @@
 package com.sparkweb.web.router;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,8 @@ import java.util.Map;
  */
 public final class MatchedRoute
 {
+	private static final String[]		EMPTY_PARAMS	= new String[0];
+	
 	private Route						route			= null;
 
 	// 路径中匹配到的命名参数，/users/:uid
@@ -25,6 +28,20 @@ public final class MatchedRoute
 		this.pathNamedParams = new HashMap<String, List<String>>();
 		this.pathSplatParams = new ArrayList<String>();
 	}
+	
+	private MatchedRoute(Route route, Map<String, List<String>> pathNamedParams, List<String> pathSplatParams) {
+		this.route = route;
+		this.pathNamedParams = pathNamedParams;
+		this.pathSplatParams = pathSplatParams;
+	}
+	
+	/**
+	 * 创建不含任何路径参数的不可变 MatchedRoute，用于静态路由命中时共享，避免每次请求创建新对象
+	 */
+	static MatchedRoute immutable(Route route)
+	{
+		return new MatchedRoute(route, Collections.<String, List<String>>emptyMap(), Collections.<String>emptyList());
+	}
 
 	protected Route getRoute()
 	{
@@ -59,11 +76,16 @@ public final class MatchedRoute
 	public String[] getPathNamedParams(String name)
 	{
 		List<String> vals = pathNamedParams.get(name.toLowerCase());
-		return vals != null ? vals.toArray(new String[vals.size()]) : new String[0];
+		return vals != null ? vals.toArray(new String[vals.size()]) : EMPTY_PARAMS;
 	}
 	
 	public Map<String, String[]> getPathNamedParams()
 	{
+		if(pathNamedParams.isEmpty())
+		{
+			return Collections.emptyMap();
+		}
+		
 		Map<String, String[]> namedParams = new HashMap<String, String[]>(pathNamedParams.size());
 		for(Map.Entry<String, List<String>> param : pathNamedParams.entrySet())
 		{
@@ -85,6 +107,11 @@ public final class MatchedRoute
 
 	public String[] getPathSplatParams()
 	{
+		if(pathSplatParams.isEmpty())
+		{
+			return EMPTY_PARAMS;
+		}
+		
 		return pathSplatParams.toArray(new String[pathSplatParams.size()]);
 	}
 }
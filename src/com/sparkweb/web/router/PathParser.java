@@ -16,6 +16,11 @@ import java.util.regex.Pattern;
  */
 class PathParser
 {
+	/**
+	 * 路由路径中除 / 和 . 以外会被当作正则解析的字符，以及命名参数的前缀 :
+	 */
+	static final String REGEXP_META_CHARS = "\\()[]{}*+?|^$:";
+	
 	/**
 	 * 将一个含有正则表达式或命名参数(:key)的路径字符串转换为可以进行正则匹配的正则对象。
 	 * <br>
@@ -153,6 +158,25 @@ class PathParser
 		return sensitive ? Pattern.compile(_pathRegexp) : Pattern.compile(_pathRegexp, Pattern.CASE_INSENSITIVE);
 	}
 	
+	/**
+	 * 判断路径是否是纯静态路径：不含命名参数(:name)和任何正则元字符
+	 * 
+	 * @param path 路由路径
+	 * @return
+	 */
+	static boolean isStaticPath(final String path)
+	{
+		for(int i = 0, len = path.length(); i < len; i++)
+		{
+			if(REGEXP_META_CHARS.indexOf(path.charAt(i)) != -1)
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
 	/**
 	 * normalize file path
 	 * 
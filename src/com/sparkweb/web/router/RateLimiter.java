@@ -0,0 +1,243 @@
+package com.sparkweb.web.router;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.sparkweb.reflect.ConstructorAccess;
+import com.sparkweb.util.TimeUtils;
+import com.sparkweb.web.HttpStatus;
+import com.sparkweb.web.RateLimitKeyResolver;
+import com.sparkweb.web.Request;
+import com.sparkweb.web.annotation.RateLimit;
+
+/**
+ * 使用 @RateLimit 标注的 Action 的限流规则，在路由注册时生成
+ * <p>
+ * 每个key的令牌桶只是一个 AtomicLong（GCRA：记录下一个请求的理论到达时间），通过 CAS 无锁更新；
+ * 令牌桶按key的 hash 分散在多个 ConcurrentHashMap 中，每个分段的key数量有上限，
+ * 超出时先清理令牌桶已满（空闲）的key，仍然超出时清理最早遍历到的key。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class RateLimiter
+{
+	private static final int					STRIPES				= 16;
+	// 每个分段最多记录的key数量
+	private static final int					MAX_KEYS_PER_STRIPE	= 4096;
+
+	private static final String					KEY_IP				= "ip";
+	private static final String					KEY_ROUTE			= "route";
+	private static final String					KEY_HEADER			= "header:";
+	private static final String					KEY_SESSION			= "session:";
+
+	// 两个请求之间的间隔（纳秒）
+	private final long							interval;
+	// 允许突发的时间窗口（纳秒）：burst * interval
+	private final long							burstWindow;
+	private final RateLimitKeyResolver			keyResolver;
+
+	private final Stripe[]						stripes				= new Stripe[STRIPES];
+
+	RateLimiter(RateLimit rateLimit) {
+		if(rateLimit.value() <= 0)
+		{
+			throw new RouteException("Invalid @RateLimit value: " + rateLimit.value());
+		}
+
+		long period;
+		try
+		{
+			period = TimeUnit.SECONDS.toNanos(TimeUtils.parseDuration(rateLimit.per()));
+		} catch(IllegalArgumentException e)
+		{
+			throw new RouteException("Invalid @RateLimit period: " + rateLimit.per(), e);
+		}
+
+		int burst = rateLimit.burst() > 0 ? rateLimit.burst() : rateLimit.value();
+
+		this.interval = Math.max(period / rateLimit.value(), 1);
+		this.burstWindow = this.interval * burst;
+		this.keyResolver = rateLimit.keyResolver() != RateLimitKeyResolver.class
+							? ConstructorAccess.get(rateLimit.keyResolver()).newInstance()
+							: builtinResolver(rateLimit.key().trim());
+
+		for(int i = 0; i < STRIPES; i++)
+		{
+			this.stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * 超过速率的请求：429 Too Many Requests，Retry-After 为需要等待的秒数
+	 */
+	static void reject(HttpServletResponse res, long waitNanos) throws IOException
+	{
+		long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+		res.setHeader("Retry-After", String.valueOf(seconds));
+		res.sendError(HttpStatus.TOO_MANY_REQUESTS);
+	}
+
+	/**
+	 * 尝试通过限流
+	 *
+	 * @return 0 表示通过；否则为需要等待的时间（纳秒）
+	 */
+	long tryAcquire(Request request)
+	{
+		String key = this.keyResolver.resolve(request);
+		if(key == null)
+		{
+			return 0;
+		}
+
+		long now = System.nanoTime();
+		AtomicLong tat = stripe(key).bucket(key, now);
+
+		for(;;)
+		{
+			long current = tat.get();
+			long next = Math.max(current, now) + this.interval;
+			long wait = next - now - this.burstWindow;
+			if(wait > 0)
+			{
+				return wait;
+			}
+
+			if(tat.compareAndSet(current, next))
+			{
+				return 0;
+			}
+		}
+	}
+
+	private Stripe stripe(String key)
+	{
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return this.stripes[h & (STRIPES - 1)];
+	}
+
+	private static RateLimitKeyResolver builtinResolver(String key)
+	{
+		if(KEY_IP.equalsIgnoreCase(key))
+		{
+			return new RateLimitKeyResolver() {
+				public String resolve(Request request)
+				{
+					return request.ip();
+				}
+			};
+		}
+
+		if(KEY_ROUTE.equalsIgnoreCase(key))
+		{
+			return new RateLimitKeyResolver() {
+				public String resolve(Request request)
+				{
+					return KEY_ROUTE;
+				}
+			};
+		}
+
+		if(key.startsWith(KEY_HEADER) && key.length() > KEY_HEADER.length())
+		{
+			final String name = key.substring(KEY_HEADER.length()).trim();
+			return new RateLimitKeyResolver() {
+				public String resolve(Request request)
+				{
+					String value = request.header(name);
+					return value != null ? value : "";
+				}
+			};
+		}
+
+		if(key.startsWith(KEY_SESSION) && key.length() > KEY_SESSION.length())
+		{
+			final String name = key.substring(KEY_SESSION.length()).trim();
+			return new RateLimitKeyResolver() {
+				public String resolve(Request request)
+				{
+					HttpSession session = request.session(false);
+					Object value = session != null ? session.getAttribute(name) : null;
+					// 未登录的请求按IP限流，与登录用户的key区分开
+					return value != null ? "s:" + value : "ip:" + request.ip();
+				}
+			};
+		}
+
+		throw new RouteException("Invalid @RateLimit key: " + key + ", expect: ip, route, header:<name> or session:<name>");
+	}
+
+	/**
+	 * 令牌桶的一个分段
+	 */
+	private static final class Stripe
+	{
+		private final ConcurrentHashMap<String, AtomicLong>	buckets	= new ConcurrentHashMap<String, AtomicLong>(64);
+		// 近似的key数量，避免每次都调用 size()
+		private final AtomicInteger							count	= new AtomicInteger(0);
+
+		AtomicLong bucket(String key, long now)
+		{
+			AtomicLong tat = this.buckets.get(key);
+			if(tat != null)
+			{
+				return tat;
+			}
+
+			if(this.count.get() >= MAX_KEYS_PER_STRIPE)
+			{
+				evict(now);
+			}
+
+			// 新的令牌桶是满的
+			AtomicLong created = new AtomicLong(now);
+			tat = this.buckets.putIfAbsent(key, created);
+			if(tat != null)
+			{
+				return tat;
+			}
+
+			this.count.incrementAndGet();
+			return created;
+		}
+
+		private synchronized void evict(long now)
+		{
+			if(this.count.get() < MAX_KEYS_PER_STRIPE)
+			{
+				return;
+			}
+
+			// 理论到达时间已经过去的令牌桶已经恢复满，删除后再创建没有区别
+			Iterator<Map.Entry<String, AtomicLong>> it = this.buckets.entrySet().iterator();
+			while(it.hasNext())
+			{
+				if(it.next().getValue().get() <= now)
+				{
+					it.remove();
+					this.count.decrementAndGet();
+				}
+			}
+
+			// 仍然超出时删除一部分key
+			it = this.buckets.entrySet().iterator();
+			int target = MAX_KEYS_PER_STRIPE * 3 / 4;
+			while(this.count.get() > target && it.hasNext())
+			{
+				it.next();
+				it.remove();
+				this.count.decrementAndGet();
+			}
+		}
+	}
+}
@@ -6,7 +6,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.sparkweb.web.ActionInvoker;
+import com.sparkweb.web.ConcurrencyLimiter;
 import com.sparkweb.web.HttpMethod;
+import com.sparkweb.web.metrics.RouteMetrics;
 
 /**
  * 路由对象 <br>
@@ -32,9 +34,33 @@ class Route
 	
 	private boolean				needCsrfCheck	= false;
 	
+	// @Offload：Action 在独立的线程池中执行
+	private boolean				offload			= false;
+	
+	// @ConcurrencyLimit 并发限制，没有使用 @ConcurrencyLimit 时为 null
+	private ConcurrencyLimiter	limiter			= null;
+	
+	// @RateLimit 限流规则，没有使用 @RateLimit 时为 null
+	private RateLimiter			rateLimiter		= null;
+	
+	// 路由的请求指标，没有配置 ExtendedWebSettings.metricsRegistry() 时为 null
+	private RouteMetrics		metrics			= null;
+	
 	private ActionInvoker		actionInvoker	= null;
 	
 	private Class<?> 			controller		= null;
+	
+	// 静态路由命中时共享的不可变匹配结果
+	private MatchedRoute		staticMatched	= null;
+	
+	// @CacheFor 响应缓存规则，没有使用 @CacheFor 时为 null
+	private ActionCache			actionCache		= null;
+	
+	// 在 normalize 时为该路由预先解析好的拦截器链（已按优先级排序）
+	private RouteInterceptor[]	befores			= RouteInterceptor.EMPTY;
+	private RouteInterceptor[]	afters			= RouteInterceptor.EMPTY;
+	private RouteInterceptor[]	finallies		= RouteInterceptor.EMPTY;
+	private RouteInterceptor[]	catches			= RouteInterceptor.EMPTY;
 
 	// 存储路由中的命名参数变量
 	private List<NamedKey>		keys			= new ArrayList<NamedKey>(10);
@@ -69,6 +95,27 @@ class Route
 		return this.routeFlag;
 	}
 	
+	/**
+	 * 是否是纯静态路由：不含命名参数和任何正则元字符，可以直接使用路径进行精确匹配
+	 */
+	protected boolean isStatic()
+	{
+		return this.routeFlag == 0 && PathParser.isStaticPath(this.path);
+	}
+	
+	/**
+	 * 获取静态路由共享的不可变匹配结果
+	 */
+	protected MatchedRoute getStaticMatchedRoute()
+	{
+		if(this.staticMatched == null)
+		{
+			this.staticMatched = MatchedRoute.immutable(this);
+		}
+		
+		return this.staticMatched;
+	}
+	
 	protected void setNeedCsrfCheck(boolean need)
 	{
 		this.needCsrfCheck = need;
@@ -99,6 +146,88 @@ class Route
 		this.controller = controller;
 	}
 
+	protected boolean isOffload()
+	{
+		return offload;
+	}
+
+	protected void setOffload(boolean offload)
+	{
+		this.offload = offload;
+	}
+
+	protected ConcurrencyLimiter getLimiter()
+	{
+		return limiter;
+	}
+
+	protected void setLimiter(ConcurrencyLimiter limiter)
+	{
+		this.limiter = limiter;
+	}
+
+	protected RateLimiter getRateLimiter()
+	{
+		return rateLimiter;
+	}
+
+	protected void setRateLimiter(RateLimiter rateLimiter)
+	{
+		this.rateLimiter = rateLimiter;
+	}
+
+	protected RouteMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	protected void setMetrics(RouteMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	protected ActionCache getActionCache()
+	{
+		return actionCache;
+	}
+
+	protected void setActionCache(ActionCache actionCache)
+	{
+		this.actionCache = actionCache;
+	}
+
+	protected RouteInterceptor[] getBefores()
+	{
+		return befores;
+	}
+
+	protected RouteInterceptor[] getAfters()
+	{
+		return afters;
+	}
+
+	protected RouteInterceptor[] getFinallies()
+	{
+		return finallies;
+	}
+
+	protected RouteInterceptor[] getCatches()
+	{
+		return catches;
+	}
+
+	/**
+	 * 设置该路由预先解析好的拦截器链
+	 */
+	protected void setInterceptors(RouteInterceptor[] befores, RouteInterceptor[] afters, 
+			RouteInterceptor[] finallies, RouteInterceptor[] catches)
+	{
+		this.befores = befores;
+		this.afters = afters;
+		this.finallies = finallies;
+		this.catches = catches;
+	}
+
 	/**
 	 * 对真实访问的路径进行路由匹配，并获取存储路径中的相关变量参数值 <br>
 	 * 比如：/question/2019202，将会匹配到定义的 /question/:id 路由，并获得 id = 2019202
@@ -113,7 +242,8 @@ class Route
 			return null;
 		}
 
-		String url = uri.replaceAll("\\/+", "\\/");
+		// 只有路径中含有连续的 / 时才需要进行合并
+		String url = uri.indexOf("//") != -1 ? uri.replaceAll("\\/+", "\\/") : uri;
 		Matcher m = this.routePattern.matcher(url);
 		if(!m.matches())
 		{
@@ -20,29 +20,42 @@ import javax.servlet.ServletContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import com.sparkweb.binding.Binder;
-import com.sparkweb.binding.ParamNode;
 import com.sparkweb.reflect.MethodAccess;
 import com.sparkweb.scanner.ClassScanner;
 import com.sparkweb.scanner.criteria.AnnotationCriteria;
 import com.sparkweb.scanner.criteria.ClassCriteria;
+import com.sparkweb.util.GlobMatcher;
 import com.sparkweb.util.Matcher;
+import com.sparkweb.web.ActionExecutor;
 import com.sparkweb.web.ActionInterceptor;
 import com.sparkweb.web.ActionInvoker;
+import com.sparkweb.web.ConcurrencyLimiter;
 import com.sparkweb.web.HttpContext;
 import com.sparkweb.web.HttpMethod;
+import com.sparkweb.web.HttpStatus;
+import com.sparkweb.web.Promise;
 import com.sparkweb.web.Request;
 import com.sparkweb.web.Response;
+import com.sparkweb.web.SparkConfig;
 import com.sparkweb.web.annotation.After;
 import com.sparkweb.web.annotation.Before;
 import com.sparkweb.web.annotation.CSRF;
+import com.sparkweb.web.annotation.CacheFor;
 import com.sparkweb.web.annotation.Catch;
+import com.sparkweb.web.annotation.ConcurrencyLimit;
 import com.sparkweb.web.annotation.Controller;
 import com.sparkweb.web.annotation.Finally;
+import com.sparkweb.web.annotation.Offload;
 import com.sparkweb.web.annotation.Path;
-import com.sparkweb.web.annotation.PathParam;
-import com.sparkweb.web.annotation.RequestBody;
+import com.sparkweb.web.annotation.RateLimit;
 import com.sparkweb.web.annotation.With;
+import com.sparkweb.web.metrics.MetricsRegistry;
+import com.sparkweb.web.metrics.Phase;
+import com.sparkweb.web.metrics.RequestTrace;
+import com.sparkweb.web.metrics.RequestTracer;
+import com.sparkweb.web.metrics.RouteMetrics;
+import com.sparkweb.web.result.AsyncResult;
+import com.sparkweb.web.result.Error;
 import com.sparkweb.web.result.NoResult;
 import com.sparkweb.web.result.Result;
 import com.sparkweb.web.security.CsrfGuard;
@@ -84,6 +97,17 @@ public final class RouteHandler
 	 */
 	private Map<String, List<Route>> routes_map = new HashMap<String, List<Route>>(8);
 	
+	/**
+	 * 在 normalize 时根据 routes_map 构建的每个 HTTP method 对应的路由前缀树，用于请求的路由匹配
+	 */
+	private Map<String, RouteTrie> route_tries = new HashMap<String, RouteTrie>(8);
+	
+	/**
+	 * 在 normalize 时构建的每个 HTTP method 对应的静态路由精确匹配索引，
+	 * 静态路由命中时不需要进行任何正则匹配，也不会创建新的 MatchedRoute。
+	 */
+	private Map<String, Map<String, Route>> static_routes = new HashMap<String, Map<String, Route>>(8);
+	
 	/**
 	 * 存储所有@Before等拦截器信息（包括通过 @With 引入的）
 	 */
@@ -248,6 +272,14 @@ public final class RouteHandler
 			
 			Path routePath = _method.getAnnotation(Path.class);
 			boolean needCsrfCheck = _method.isAnnotationPresent(CSRF.class);
+			boolean offload = _method.isAnnotationPresent(Offload.class) 
+								|| mAcc.getDeclaringClass().isAnnotationPresent(Offload.class);
+			ActionCache actionCache = _method.isAnnotationPresent(CacheFor.class) 
+											? new ActionCache(_method.getAnnotation(CacheFor.class)) : null;
+			ConcurrencyLimiter limiter = createLimiter(_method.getAnnotation(ConcurrencyLimit.class));
+			RateLimiter rateLimiter = _method.isAnnotationPresent(RateLimit.class) 
+											? new RateLimiter(_method.getAnnotation(RateLimit.class)) : null;
+			MetricsRegistry metricsRegistry = SparkConfig.getConfig().metricsRegistry();
 			
 			for(HttpMethod httpMethod : routePath.method())
 			{
@@ -270,6 +302,14 @@ public final class RouteHandler
 						route.setController(mAcc.getDeclaringClass());
 						route.setActionInvoker(new ActionInvoker(mAcc, i));
 						route.setNeedCsrfCheck(needCsrfCheck);
+						route.setOffload(offload);
+						route.setLimiter(limiter);
+						route.setRateLimiter(rateLimiter);
+						route.setActionCache(actionCache);
+						if(metricsRegistry != null)
+						{
+							route.setMetrics(metricsRegistry.register(httpMethod.name(), route.getPath()));
+						}
 						
 						// register route
 						registerRoute(route);
@@ -378,6 +418,26 @@ public final class RouteHandler
 	}
 	
 	
+	/**
+	 * 根据 @ConcurrencyLimit 创建Action的并发限制
+	 */
+	private static ConcurrencyLimiter createLimiter(ConcurrencyLimit concurrencyLimit)
+	{
+		if(concurrencyLimit == null)
+		{
+			return null;
+		}
+		
+		if(concurrencyLimit.value() <= 0)
+		{
+			throw new RouteException("Invalid @ConcurrencyLimit value: " + concurrencyLimit.value());
+		}
+		
+		return concurrencyLimit.adaptive() 
+				? ConcurrencyLimiter.adaptive(concurrencyLimit.minLimit(), concurrencyLimit.value()) 
+				: ConcurrencyLimiter.fixed(concurrencyLimit.value());
+	}
+	
 	/**
 	 * 检测给定的方法必须是静态方法
 	 */
@@ -422,6 +482,7 @@ public final class RouteHandler
 	 */
 	public boolean dispatch() throws Throwable
 	{
+		long startedAt = System.nanoTime();
 		MatchedRoute matchedRoute = matchRequest(HttpContext.current().request());
 		
 		if(matchedRoute == null)
@@ -431,136 +492,129 @@ public final class RouteHandler
 		
 		HttpContext.current().matchedRoute(matchedRoute);
 		
-		processRoute(matchedRoute.getRoute());
+		// 按采样率跟踪慢请求
+		RequestTracer tracer = SparkConfig.getConfig().requestTracer();
+		if(tracer != null)
+		{
+			HttpContext.current().trace(tracer.begin(startedAt));
+		}
+		
+		processRoute(matchedRoute.getRoute(), startedAt);
 		
 		return true;
 	}
 	
-	private void processRoute(final Route route) throws Throwable
+	/**
+	 * @param startedAt 开始路由匹配的时间（System.nanoTime()）
+	 */
+	private void processRoute(final Route route, long startedAt) throws Throwable
 	{
 		Request request = HttpContext.current().request();
 		Response response = HttpContext.current().response();
 		
+		RouteMetrics metrics = route.getMetrics();
+		RequestTrace trace = HttpContext.current().trace();
+		boolean timed = metrics != null || trace != null;
+		long mark = mark(metrics, trace, Phase.MATCH, startedAt);
+		if(metrics != null)
+		{
+			metrics.started();
+		}
+		
+		// 超过 @RateLimit 速率的请求直接返回 429，不进行参数绑定、不执行拦截器
+		RateLimiter rateLimiter = route.getRateLimiter();
+		if(rateLimiter != null)
+		{
+			long wait = rateLimiter.tryAcquire(request);
+			if(wait > 0)
+			{
+				RateLimiter.reject(response.httpServletResponse(), wait);
+				completeRequest(route, startedAt, true);
+				return;
+			}
+		}
+		
+		// @Offload 的线程池已满时直接返回 503，不进行参数绑定、不执行拦截器
+		ActionExecutor actionExecutor = route.isOffload() ? SparkConfig.getConfig().actionExecutor() : null;
+		if(actionExecutor != null && !actionExecutor.reserve())
+		{
+			ConcurrencyLimiter.reject(response.httpServletResponse());
+			completeRequest(route, startedAt, true);
+			return;
+		}
+		
+		// 超过 @ConcurrencyLimit 并发限制时直接返回 503，不进行参数绑定、不执行拦截器
+		ConcurrencyLimiter limiter = route.getLimiter();
+		if(limiter != null && !limiter.tryAcquire())
+		{
+			if(actionExecutor != null)
+			{
+				actionExecutor.cancel();
+			}
+			
+			ConcurrencyLimiter.reject(response.httpServletResponse());
+			completeRequest(route, startedAt, true);
+			return;
+		}
+		
+		ActionCache actionCache = route.getActionCache();
+		String cacheKey = null;
+		CacheCaptureResponse cacheCapture = null;
+		boolean async = false;
+		boolean failed = true;
+		
 		try
 		{
 			if(route.isNeedCsrfCheck())
 			{
 				CsrfGuard.getInstance().isValidRequest(request.servletRequest(), response.httpServletResponse());
+				
+				if(trace != null)
+				{
+					trace.span(Phase.BEFORE, "csrf", mark, System.nanoTime());
+				}
 			}
 			
 			Result actionResult = null;
-			//String cacheKey = null;
 			
 			// @Before interceptors
 			// may throw Result or Exception
 			handleBefores(route);
+			mark = mark(metrics, trace, Phase.BEFORE, mark);
 			
 			// Route action invoke
 			ActionInvoker actionInvoker = route.getActionInvoker();
 			
 			// Check the cache (only for GET or HEAD)
-			// TODO Cache for Result supporting...
-            /*if(("GET".equals(request.method()) || "HEAD".equals(request.method())) 
-            		&& actionInvoker.getMethod().isAnnotationPresent(CacheFor.class)) 
-            {
-                cacheKey = actionInvoker.getMethod().getAnnotation(CacheFor.class).key();
-                
-                if(cacheKey == null || cacheKey.trim().length() == 0) 
-                {
-                    cacheKey = "urlcache:" + request.url() + request.queryString();
-                }
-                
-                actionResult = (Result) CacheManager.get(cacheKey);
-            }*/
-			
-			if(actionResult == null)
+			if(actionCache != null && actionCache.accepts(request))
 			{
-				Class<?>[] argsType = actionInvoker.getMethod().getParameterTypes();
-				Object[] args = null;
+				cacheKey = actionCache.keyFor(request);
+				// 可能会等待同一个缓存key上正在执行的请求
+				actionResult = actionCache.lookup(request, cacheKey);
 				
-				if(argsType != null && argsType.length > 0)
+				// 缓存未命中或需要刷新，记录本次的响应用于放入缓存
+				if(actionResult == null)
 				{
-					args = new Object[argsType.length];
-					
-					for(int i = 0, len = argsType.length; i < len; i++)
-					{
-						Class<?> argType = argsType[i];
-						String argName = actionInvoker.getMethodParameterNames()[i];
-						
-						if(argType == Request.class)
-						{
-							args[i] = request;
-							continue;
-						}
-						else if(argType == Response.class)
-						{
-							args[i] = response;
-							continue;
-						}
-						else 
-						{
-							Map<String, String[]> params = new HashMap<String, String[]>();
-							Annotation[] paramAnnos = actionInvoker.getMethod().getParameterAnnotations()[i];
-							
-							if(paramAnnos != null && paramAnnos.length > 0)
-							{
-								if(paramAnnos[0].annotationType() == PathParam.class)
-								{
-									PathParam pathParam = (PathParam)paramAnnos[0];
-									params.put(argName, request.pathParams(pathParam.value().trim().length() == 0 
-																			? argName 
-																			: pathParam.value().trim()));
-								} 
-								else if(paramAnnos[0].annotationType() == RequestBody.class)
-								{
-									if(request.header("Content-Type").indexOf("application/x-www-form-urlencoded") == -1)
-									{
-										if(CharSequence.class.isAssignableFrom(argType))
-										{
-											args[i] = request.body();
-										}
-										else if(request.header("Content-Type").indexOf("application/json") != -1)
-										{
-											args[i] = request.body(argType);
-										}
-										else
-										{
-											args[i] = null;
-										}
-									}
-									else
-									{
-										args[i] = null;
-									}
-									
-									continue;
-								}
-							} 
-							else if(CharSequence.class.isAssignableFrom(argType)) //argType == String.class
-				            {
-								args[i] = request.param(argName);
-								continue;
-				            }
-							else if(Number.class.isAssignableFrom(argType) || argType.isPrimitive()) 
-				            {
-				                params.put(argName, request.params(argName));
-				            }
-				            else 
-				            {
-				                params.putAll(request.params());
-				            }
-				            
-							args[i] = Binder.bind(
-								 			ParamNode.convert(params),
-								 			argName,
-					                        argType,
-					                        actionInvoker.getMethod().getGenericParameterTypes()[i],
-					                        paramAnnos,
-					                        new Binder.MethodAndParamInfo(null, actionInvoker.getMethod(), i + 1)
-										);
-						}
-					}
+					cacheCapture = actionCache.capture(request, response);
 				}
+			}
+			
+			// @Offload：Action 在独立的线程池中执行，释放容器线程
+			if(actionResult == null && actionExecutor != null 
+					&& offloadAction(route, actionExecutor, actionCache, cacheKey, cacheCapture, startedAt))
+			{
+				// 预留的名额已经交给线程池
+				actionExecutor = null;
+				async = true;
+				return;
+			}
+			
+			if(actionResult == null)
+			{
+				// 使用路由注册时生成的参数解析器获取Action参数
+				mark = timed ? System.nanoTime() : 0;
+				Object[] args = actionInvoker.resolveArguments(request, response);
+				mark = mark(metrics, trace, Phase.BIND, mark);
 				
 				try
 				{
@@ -571,36 +625,34 @@ public final class RouteHandler
 				catch(Result result) 
 				{
 					actionResult = result;
-					
-					// TODO Cache for Result supporting...
-					// Cache it if needed
-                    /*if(cacheKey != null) 
-                    {
-                       Cache.set(cacheKey, actionResult, actionInvoker.getMethod().getAnnotation(CacheFor.class).region());
-                    }*/
 				}
 				catch(Exception ex)
 				{
 					if(ex instanceof Result)
 					{
 						actionResult = (Result) ex;
-						
-						// TODO Cache for Result supporting...
-						// Cache it if needed
-	                    /*if(cacheKey != null) 
-	                    {
-	                       Cache.set(cacheKey, actionResult, actionInvoker.getMethod().getAnnotation(CacheFor.class).region());
-	                    }*/
 					}
 					else 
 					{
 						handleCatches(ex, route);
 					}
 				}
+				
+				mark = mark(metrics, trace, Phase.ACTION, mark);
+			}
+			
+			// 异步Action：释放容器线程，Promise 完成后再执行 @After、渲染结果和 @Finally
+			if(actionResult instanceof AsyncResult 
+					&& startAsync(route, ((AsyncResult) actionResult).getPromise(), actionCache, cacheKey, cacheCapture, startedAt))
+			{
+				async = true;
+				return;
 			}
 			
 			// @After interceptors
+			mark = timed ? System.nanoTime() : 0;
 			handleAfters(route);
+			mark(metrics, trace, Phase.AFTER, mark);
 			
 			if(actionResult != null)
 			{
@@ -611,218 +663,437 @@ public final class RouteHandler
 		}
 		catch(Result result) 
 		{
-			if(!(result instanceof NoResult))
-			{
-				// invoke action
-				result.apply(request, response);
-				// @Finally
-				handleFinallies(null, route);
-			}
+			applyResult(route, result, actionCache, cacheKey, cacheCapture);
+			failed = false;
 		}
 		catch(Throwable e)
 		{
 			handleFinallies(e, route);
 		}
+		finally
+		{
+			// 命中缓存或者没有转到线程池执行时，释放预留的名额
+			if(actionExecutor != null)
+			{
+				actionExecutor.cancel();
+			}
+			
+			if(!async)
+			{
+				if(cacheCapture != null)
+				{
+					actionCache.release(request, cacheKey, response, cacheCapture);
+				}
+				
+				if(limiter != null)
+				{
+					limiter.release(startedAt);
+				}
+				
+				completeRequest(route, startedAt, failed);
+			}
+		}
 	}
 	
-	private void handleBefores(final Route route) throws Throwable
+	private boolean startAsync(final Route route, final Promise promise, final ActionCache actionCache, 
+			final String cacheKey, final CacheCaptureResponse cacheCapture, final long startedAt)
 	{
-		List<ActionInterceptor> befores = before_interceptors.get(route.getController().getName());
-		if(befores == null || befores.isEmpty())
+		return HttpContext.current().startAsync(promise, new Promise.Continuation() {
+			public void resume(Promise promise) throws Throwable
+			{
+				resumeRoute(route, promise, actionCache, cacheKey, cacheCapture, startedAt);
+			}
+		});
+	}
+	
+	/**
+	 * 使用预留的名额在 @Offload 线程池中执行Action，线程池拒绝执行时返回 503
+	 * 
+	 * @return 请求不支持异步处理时返回 false，由当前线程执行Action，预留的名额仍然属于调用者
+	 */
+	private boolean offloadAction(final Route route, ActionExecutor actionExecutor, ActionCache actionCache, 
+			String cacheKey, CacheCaptureResponse cacheCapture, long startedAt)
+	{
+		final Promise promise = new Promise();
+		if(!startAsync(route, promise, actionCache, cacheKey, cacheCapture, startedAt))
 		{
-			return;
+			return false;
 		}
 		
-		for(ActionInterceptor interceptor : befores)
-		{
-			Before before = interceptor.getInterceptor(Before.class);
-			if(skipInterceptor(route, before.only(), before.unless()))
+		boolean accepted = actionExecutor.executeReserved(new Runnable() {
+			public void run()
 			{
-				continue;
+				invokeAction(route, promise);
 			}
+		});
+		
+		if(!accepted)
+		{
+			HttpContext.current().response().header("Retry-After", "1");
+			promise.complete(new Error(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, please try again later!"));
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * 执行Action，使用Action的结果完成 Promise
+	 */
+	private static void invokeAction(final Route route, final Promise promise)
+	{
+		try
+		{
+			Request request = HttpContext.current().request();
+			Response response = HttpContext.current().response();
 			
-			Class<?>[] argsType = interceptor.getMethod().getParameterTypes();
-			Object[] args = null;
+			RouteMetrics metrics = route.getMetrics();
+			RequestTrace trace = HttpContext.current().trace();
+			long mark = metrics != null || trace != null ? System.nanoTime() : 0;
 			
-			if(argsType != null && argsType.length > 0)
+			ActionInvoker actionInvoker = route.getActionInvoker();
+			Object[] args = actionInvoker.resolveArguments(request, response);
+			mark = mark(metrics, trace, Phase.BIND, mark);
+			
+			try
 			{
-				args = new Object[argsType.length];
-				for(int i = 0, len = argsType.length; i < len; i++)
-				{
-					if(argsType[i] == Request.class)
-					{
-						args[i] = HttpContext.current().request();
-					}
-					else if(argsType[i] == Response.class)
-					{
-						args[i] = HttpContext.current().response();
-					}
-					else {
-						args[i] = null;
-					}
-				}
+				actionInvoker.invoke(args);
+			}
+			finally
+			{
+				mark(metrics, trace, Phase.ACTION, mark);
 			}
 			
-			interceptor.invoke(args != null ? args : new Object[0]);
+			promise.complete(null);
+		}
+		catch(Result result)
+		{
+			promise.complete(result);
+		}
+		catch(Throwable e)
+		{
+			promise.fail(e);
 		}
 	}
 	
-	private void handleAfters(final Route route) throws Throwable
+	/**
+	 * 异步Action的 Promise 完成后，在完成 Promise 的线程上继续处理请求
+	 */
+	private void resumeRoute(final Route route, final Promise promise, ActionCache actionCache, String cacheKey, 
+			CacheCaptureResponse cacheCapture, long startedAt) throws Throwable
 	{
-		List<ActionInterceptor> afters = after_interceptors.get(route.getController().getName());
-		if(afters == null || afters.isEmpty())
-		{
-			return;
-		}
+		Request request = HttpContext.current().request();
+		Response response = HttpContext.current().response();
+		RouteMetrics metrics = route.getMetrics();
+		RequestTrace trace = HttpContext.current().trace();
+		boolean failed = true;
 		
-		for(ActionInterceptor interceptor : afters)
+		try
 		{
-			After after = interceptor.getInterceptor(After.class);
-			if(skipInterceptor(route, after.only(), after.unless()))
+			Throwable cause = promise.cause();
+			if(cause != null)
 			{
-				continue;
+				if(!(cause instanceof Exception))
+				{
+					throw cause;
+				}
+				
+				// may throw Result or Exception
+				handleCatches(cause, route);
 			}
 			
-			Class<?>[] argsType = interceptor.getMethod().getParameterTypes();
-			Object[] args = null;
+			// @After interceptors
+			long mark = metrics != null || trace != null ? System.nanoTime() : 0;
+			handleAfters(route);
+			mark(metrics, trace, Phase.AFTER, mark);
 			
-			if(argsType != null && argsType.length > 0)
+			throw cause == null ? promise.result() : new NoResult();
+		}
+		catch(Result result) 
+		{
+			applyResult(route, result, actionCache, cacheKey, cacheCapture);
+			failed = false;
+		}
+		catch(Throwable e)
+		{
+			handleFinallies(e, route);
+		}
+		finally
+		{
+			if(cacheCapture != null)
 			{
-				args = new Object[argsType.length];
-				for(int i = 0, len = argsType.length; i < len; i++)
-				{
-					if(argsType[i] == Request.class)
-					{
-						args[i] = HttpContext.current().request();
-					}
-					else if(argsType[i] == Response.class)
-					{
-						args[i] = HttpContext.current().response();
-					}
-					else {
-						args[i] = null;
-					}
-				}
+				actionCache.release(request, cacheKey, response, cacheCapture);
+			}
+			
+			if(route.getLimiter() != null)
+			{
+				route.getLimiter().release(startedAt);
 			}
 			
-			interceptor.invoke(args != null ? args : new Object[0]);
+			completeRequest(route, startedAt, failed);
 		}
 	}
 	
-	private void handleFinallies(Throwable e, final Route route) throws Throwable
+	/**
+	 * 渲染结果，缓存响应并执行 @Finally
+	 */
+	private void applyResult(final Route route, Result result, ActionCache actionCache, String cacheKey, 
+			CacheCaptureResponse cacheCapture) throws Throwable
+	{
+		Request request = HttpContext.current().request();
+		Response response = HttpContext.current().response();
+		
+		if(!(result instanceof NoResult))
+		{
+			RouteMetrics metrics = route.getMetrics();
+			RequestTrace trace = HttpContext.current().trace();
+			long mark = metrics != null || trace != null ? System.nanoTime() : 0;
+			try
+			{
+				// invoke action
+				result.apply(request, response);
+			}
+			catch(Throwable e)
+			{
+				// 渲染失败（如流式输出中断）时 @Finally 也需要执行
+				handleFinallies(e, route);
+				throw e;
+			}
+			finally
+			{
+				mark(metrics, trace, Phase.RENDER, mark);
+			}
+		}
+		
+		// Cache it if needed
+		if(cacheCapture != null)
+		{
+			actionCache.store(request, cacheKey, cacheCapture);
+		}
+		
+		if(!(result instanceof NoResult))
+		{
+			// @Finally
+			handleFinallies(null, route);
+		}
+	}
+	
+	/**
+	 * 记录从 since 开始的处理阶段的耗时
+	 * 
+	 * @return 当前时间，作为下一个阶段的开始时间；没有配置指标并且没有跟踪时返回 0
+	 */
+	private static long mark(RouteMetrics metrics, RequestTrace trace, Phase phase, long since)
+	{
+		if(metrics == null && trace == null)
+		{
+			return 0;
+		}
+		
+		long now = System.nanoTime();
+		if(metrics != null)
+		{
+			metrics.record(phase, now - since);
+		}
+		if(trace != null)
+		{
+			trace.span(phase, null, since, now);
+		}
+		return now;
+	}
+	
+	/**
+	 * 请求处理结束：记录指标（响应状态码 &gt;= 500 时也记为出错），结束慢请求跟踪
+	 * 
+	 * @param failed 请求出错，或者被限流、并发限制拒绝
+	 */
+	private static void completeRequest(Route route, long startedAt, boolean failed)
 	{
-		List<ActionInterceptor> finallies = finally_interceptors.get(route.getController().getName());
-		if(finallies == null || finallies.isEmpty())
+		RouteMetrics metrics = route.getMetrics();
+		RequestTrace trace = HttpContext.current().trace();
+		if(metrics == null && trace == null)
 		{
 			return;
 		}
 		
-		for(ActionInterceptor interceptor : finallies)
+		Response response = HttpContext.current().response();
+		if(metrics != null)
+		{
+			metrics.completed(System.nanoTime() - startedAt, failed || response.status() >= HttpStatus.INTERNAL_ERROR);
+		}
+		
+		if(trace != null)
+		{
+			HttpContext.current().trace(null);
+			Request request = HttpContext.current().request();
+			trace.end(request.method(), request.path(), route.getPath(), response.status());
+		}
+	}
+	
+	private void handleBefores(final Route route) throws Throwable
+	{
+		invokeInterceptors(route.getBefores(), null, Phase.BEFORE);
+	}
+	
+	private void handleAfters(final Route route) throws Throwable
+	{
+		invokeInterceptors(route.getAfters(), null, Phase.AFTER);
+	}
+	
+	private void handleFinallies(Throwable e, final Route route) throws Throwable
+	{
+		//invoking @Finally method with caughtException as parameter
+		invokeInterceptors(route.getFinallies(), e, null);
+	}
+	
+	private void handleCatches(Throwable e, final Route route) throws Throwable
+	{
+		RouteInterceptor[] catches = route.getCatches();
+		if(catches.length == 0)
+		{
+			throw e;
+		}
+		
+		Request request = HttpContext.current().request();
+		Response response = HttpContext.current().response();
+		
+		for(RouteInterceptor routeInterceptor : catches)
 		{
-			Finally _finally = interceptor.getInterceptor(Finally.class);
-			if(skipInterceptor(route, _finally.only(), _finally.unless()))
+			if(routeInterceptor.catches(e))
 			{
-				continue;
+				ActionInterceptor interceptor = routeInterceptor.getInterceptor();
+				interceptor.invoke(interceptor.resolveArguments(request, response, e));
+				return;
 			}
-			
-			Class<?>[] argsType = interceptor.getMethod().getParameterTypes();
-			Object[] args = null;
-			//invoking @Finally method with caughtException as parameter
-			if(argsType != null && argsType.length > 0)
+		}
+		
+		throw e;
+	}
+	
+	/**
+	 * 依次执行路由预先解析好的拦截器链，只有基于请求路径的 only/unless 规则需要在此时判断
+	 * 
+	 * @param phase 被跟踪的请求记录每个拦截器耗时的处理阶段，为 null 时不记录
+	 */
+	private static void invokeInterceptors(RouteInterceptor[] interceptors, Throwable e, Phase phase) throws Throwable
+	{
+		if(interceptors.length == 0)
+		{
+			return;
+		}
+		
+		Request request = HttpContext.current().request();
+		Response response = HttpContext.current().response();
+		RequestTrace trace = phase != null ? HttpContext.current().trace() : null;
+		String path = null;
+		
+		for(RouteInterceptor routeInterceptor : interceptors)
+		{
+			if(routeInterceptor.isPathDependent())
 			{
-				args = new Object[argsType.length];
-				for(int i = 0, len = argsType.length; i < len; i++)
+				if(path == null)
 				{
-					if(Throwable.class.isAssignableFrom(argsType[i]))
-					{
-						args[i] = e;
-					}
-					else if(argsType[i] == Request.class)
-					{
-						args[i] = HttpContext.current().request();
-					}
-					else if(argsType[i] == Response.class)
-					{
-						args[i] = HttpContext.current().response();
-					}
-					else {
-						args[i] = null;
-					}
+					path = request.path();
+				}
+				
+				if(!routeInterceptor.applies(path))
+				{
+					continue;
 				}
 			}
 			
-			interceptor.invoke(args != null ? args : new Object[0]);
-		}
+			ActionInterceptor interceptor = routeInterceptor.getInterceptor();
+			if(trace == null)
+			{
+				interceptor.invoke(interceptor.resolveArguments(request, response, e));
+				continue;
+			}
 			
+			long start = System.nanoTime();
+			try
+			{
+				interceptor.invoke(interceptor.resolveArguments(request, response, e));
+			}
+			finally
+			{
+				trace.span(phase, interceptor.getAction(), start, System.nanoTime());
+			}
+		}
 	}
 	
-	private void handleCatches(Throwable e, final Route route) throws Throwable
+	/**
+	 * 为路由解析出实际作用于它的拦截器链，基于 Action 的 only/unless 规则在此时一次性求值
+	 */
+	private static RouteInterceptor[] resolveInterceptors(Route route, List<ActionInterceptor> interceptors, 
+			Class<? extends Annotation> type)
 	{
-		List<ActionInterceptor> catches = catch_interceptors.get(route.getController().getName());
-		if(catches == null || catches.isEmpty())
+		if(interceptors == null || interceptors.isEmpty())
 		{
-			throw e;
+			return RouteInterceptor.EMPTY;
 		}
 		
-		for(ActionInterceptor interceptor : catches)
+		List<RouteInterceptor> chain = new ArrayList<RouteInterceptor>(interceptors.size());
+		
+		for(ActionInterceptor interceptor : interceptors)
 		{
-			Catch aCatch = interceptor.getInterceptor(Catch.class);
-			Class<?>[] exceptions = aCatch.value();
+			RouteInterceptor routeInterceptor = null;
 			
-            if(exceptions.length == 0) 
-            {
-                exceptions = new Class[]{Exception.class};
-            }
-            
-            for(Class<?> exception : exceptions) 
-            {
-                if(exception.isInstance(e)) 
-                {
-                	Class<?>[] argsType = interceptor.getMethod().getParameterTypes();
-    				Object[] args = null;
-    				
-    				if(argsType != null && argsType.length > 0)
-    				{
-    					args = new Object[argsType.length];
-    					
-    					for(int i = 0, len = argsType.length; i < len; i++)
-    					{
-    						if(Throwable.class.isAssignableFrom(argsType[i]))
-    						{
-    							args[i] = e;
-    						}
-    						else if(argsType[i] == Request.class)
-    						{
-    							args[i] = HttpContext.current().request();
-    						}
-    						else if(argsType[i] == Response.class)
-    						{
-    							args[i] = HttpContext.current().response();
-    						}
-    						else {
-    							args[i] = null;
-    						}
-    					}
-    				}
-                	
-                	interceptor.invoke(args != null ? args : new Object[0]);
-                    return;
-                }
-            }
+			if(type == Before.class)
+			{
+				Before before = interceptor.getInterceptor(Before.class);
+				routeInterceptor = resolveInterceptor(route, interceptor, before.only(), before.unless());
+			}
+			else if(type == After.class)
+			{
+				After after = interceptor.getInterceptor(After.class);
+				routeInterceptor = resolveInterceptor(route, interceptor, after.only(), after.unless());
+			}
+			else if(type == Finally.class)
+			{
+				Finally _finally = interceptor.getInterceptor(Finally.class);
+				routeInterceptor = resolveInterceptor(route, interceptor, _finally.only(), _finally.unless());
+			}
+			else if(type == Catch.class)
+			{
+				Class<?>[] exceptions = interceptor.getInterceptor(Catch.class).value();
+	            if(exceptions.length == 0) 
+	            {
+	                exceptions = new Class[]{Exception.class};
+	            }
+	            
+				routeInterceptor = new RouteInterceptor(interceptor, null, null, exceptions);
+			}
+			
+			if(routeInterceptor != null)
+			{
+				chain.add(routeInterceptor);
+			}
 		}
 		
-		throw e;
+		return chain.isEmpty() ? RouteInterceptor.EMPTY : chain.toArray(new RouteInterceptor[chain.size()]);
 	}
 	
 	/**
-	 * 判断一个路由是否需要跳过相应的拦截器规则
+	 * 判断一个路由是否需要跳过相应的拦截器规则：<br>
+	 * 基于 Action 的规则（test.TestController.testAPI 或 testAPI）直接求值；
+	 * 基于请求路径的规则（/api/*）编译为匹配器，留到请求时判断。
+	 * 
+	 * @return 路由上的拦截器，如果该拦截器一定会被跳过则返回 null
 	 */
-	private static boolean skipInterceptor(Route route, String[] only, String[] unless)
+	private static RouteInterceptor resolveInterceptor(Route route, ActionInterceptor interceptor, 
+			String[] only, String[] unless)
 	{
-		boolean skip = false;
+		// action = ControllerClassName.MethodName
+		String action = route.getActionInvoker().getAction();
+		String declaringClass = route.getActionInvoker().getMethod().getDeclaringClass().getName();
+		
+		GlobMatcher[] onlyPaths = null;
 		
 		if(only != null && only.length > 0)
 		{
+			boolean hasRule = false;
+			boolean actionMatched = false;
+			List<GlobMatcher> paths = new ArrayList<GlobMatcher>(only.length);
+			
 			for(String on : only)
 			{
 				if(on == null || on.trim().length() == 0)
@@ -830,38 +1101,38 @@ public final class RouteHandler
 					continue;
 				}
 				
-				// action = ControllerClassName.MethodName
-				String action = route.getActionInvoker().getAction();
+				hasRule = true;
 				
-				// match Class.Method --> test.TestController.testAPI
-				if(!on.contains(".") && !on.contains("/"))
-				{
-					on = route.getActionInvoker().getMethod().getDeclaringClass().getName() + '.' + on;
-				}
 				// match request path --> /api/* :: /api/users
-				else if(on.contains("/"))
+				if(on.contains("/"))
 				{
-					if(on.charAt(0) != '/')
-					{
-						on = '/' + on;
-					}
-					
-					action = HttpContext.current().request().path();
+					paths.add(compilePathRule(on));
 				}
-				
-				if(Matcher.match(on, action, false))
+				// match Class.Method --> test.TestController.testAPI
+				else if(Matcher.match(on.contains(".") ? on : declaringClass + '.' + on, action, false))
 				{
-					skip = false;
+					actionMatched = true;
 					break;
-				} 
-				else {
-					skip = true;
 				}
 			}
+			
+			if(hasRule && !actionMatched)
+			{
+				if(paths.isEmpty())
+				{
+					return null;
+				}
+				
+				onlyPaths = paths.toArray(new GlobMatcher[paths.size()]);
+			}
 		}
 		
+		GlobMatcher[] unlessPaths = null;
+		
 		if(unless != null && unless.length > 0)
-		{	
+		{
+			List<GlobMatcher> paths = new ArrayList<GlobMatcher>(unless.length);
+			
 			for(String un : unless)
 			{
 				if(un == null || un.trim().length() == 0)
@@ -869,34 +1140,30 @@ public final class RouteHandler
 					continue;
 				}
 				
-				// action = ControllerClassName.MethodName
-				String action = route.getActionInvoker().getAction();
-				
-				// unmatch Class.Method --> test.TestController.testAPI
-				if(!un.contains(".") && !un.contains("/"))
-				{
-					un = route.getActionInvoker().getMethod().getDeclaringClass().getName() + '.' + un;
-				}
 				// unmatch request path --> /api/* :: /api/users
-				else if(un.contains("/"))
+				if(un.contains("/"))
 				{
-					if(un.charAt(0) != '/')
-					{
-						un = '/' + un;
-					}
-					
-					action = HttpContext.current().request().path();
+					paths.add(compilePathRule(un));
 				}
-				
-				if(Matcher.match(un, action, false))
+				// unmatch Class.Method --> test.TestController.testAPI
+				else if(Matcher.match(un.contains(".") ? un : declaringClass + '.' + un, action, false))
 				{
-					skip = true;
-					break;
-				} 
+					return null;
+				}
+			}
+			
+			if(!paths.isEmpty())
+			{
+				unlessPaths = paths.toArray(new GlobMatcher[paths.size()]);
 			}
 		}
 		
-		return skip;
+		return new RouteInterceptor(interceptor, onlyPaths, unlessPaths, null);
+	}
+	
+	private static GlobMatcher compilePathRule(String rule)
+	{
+		return GlobMatcher.compile(rule.charAt(0) != '/' ? '/' + rule : rule, false);
 	}
 	
 	/**
@@ -908,26 +1175,56 @@ public final class RouteHandler
 	private MatchedRoute matchRequest(Request request)
 	{
 		String _method = request.method().toUpperCase(Locale.US);
-		List<Route> routes = this.routes_map.get(_method);
+		String reqPath = request.path();
 		
-		if(routes == null || routes.isEmpty())
+		// 静态路由精确匹配
+		Map<String, Route> staticRoutes = this.static_routes.get(_method);
+		if(staticRoutes != null && reqPath != null)
+		{
+			Route route = staticRoutes.get(this.caseSensitive ? reqPath : reqPath.toLowerCase(Locale.US));
+			if(route != null)
+			{
+				return route.getStaticMatchedRoute();
+			}
+		}
+		
+		RouteTrie routeTrie = this.route_tries.get(_method);
+		
+		if(routeTrie == null)
 		{
 			return null;
 		}
 		
-		String reqPath = request.path();
-		MatchedRoute mRoute = null;
+		return routeTrie.match(reqPath);
+	}
+	
+	/**
+	 * 将静态路由加入精确匹配索引，已经存在的路由优先级更高，不进行覆盖
+	 */
+	private void indexStaticRoute(Map<String, Route> staticRoutes, Route route)
+	{
+		String path = this.caseSensitive ? route.getPath() : route.getPath().toLowerCase(Locale.US);
 		
-		for(int i = 0, size = routes.size(); i < size; ++i)
+		// 严格模式下：/users != /users/；非严格模式下：/users == /users/
+		if(this.strict)
 		{
-			mRoute = routes.get(i).match(reqPath);
-			if(mRoute != null)
+			if(!staticRoutes.containsKey(path))
 			{
-				return mRoute;
+				staticRoutes.put(path, route);
 			}
+			return;
 		}
 		
-		return null;
+		String basePath = path.charAt(path.length() - 1) == '/' ? path.substring(0, path.length() - 1) : path;
+		if(!staticRoutes.containsKey(basePath))
+		{
+			staticRoutes.put(basePath, route);
+		}
+		
+		if(!staticRoutes.containsKey(basePath + '/'))
+		{
+			staticRoutes.put(basePath + '/', route);
+		}
 	}
 	
 	/**
@@ -958,6 +1255,24 @@ public final class RouteHandler
 					return route1.getFlag() - route2.getFlag();
 				}
 			});
+			
+			// 按照排序后的优先级构建静态路由索引和路由前缀树
+			Map<String, Route> staticRoutes = new HashMap<String, Route>(en.getValue().size() * 2);
+			RouteTrie routeTrie = new RouteTrie(this.caseSensitive, this.strict);
+			for(Route route : en.getValue())
+			{
+				if(route.isStatic())
+				{
+					// 预先创建静态路由共享的匹配结果
+					route.getStaticMatchedRoute();
+					indexStaticRoute(staticRoutes, route);
+				}
+				
+				routeTrie.add(route);
+			}
+			
+			this.static_routes.put(en.getKey(), staticRoutes);
+			this.route_tries.put(en.getKey(), routeTrie);
 		}
 		
 		// Sort Interceptors priority
@@ -1005,6 +1320,19 @@ public final class RouteHandler
 	        });
 		}
 		
+		// 为每个路由预先解析出实际作用于它的拦截器链
+		for(List<Route> routes : this.routes_map.values())
+		{
+			for(Route route : routes)
+			{
+				String controller = route.getController().getName();
+				route.setInterceptors(
+						resolveInterceptors(route, this.before_interceptors.get(controller), Before.class), 
+						resolveInterceptors(route, this.after_interceptors.get(controller), After.class), 
+						resolveInterceptors(route, this.finally_interceptors.get(controller), Finally.class), 
+						resolveInterceptors(route, this.catch_interceptors.get(controller), Catch.class));
+			}
+		}
 	}
 	
 	/**
@@ -1015,6 +1343,12 @@ public final class RouteHandler
 		this.routes_map.clear();
 		this.routes_map = null;
 		
+		this.route_tries.clear();
+		this.route_tries = null;
+		
+		this.static_routes.clear();
+		this.static_routes = null;
+		
 		this.before_interceptors.clear();
 		this.before_interceptors = null;
 		
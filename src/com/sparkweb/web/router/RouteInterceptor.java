@@ -0,0 +1,102 @@
+package com.sparkweb.web.router;
+
+import com.sparkweb.util.GlobMatcher;
+import com.sparkweb.web.ActionInterceptor;
+
+/**
+ * 绑定到具体路由上的拦截器 <br>
+ * 在 {@link RouteHandler} normalize 时生成：基于 Action 的 only/unless 规则已经预先求值，
+ * 不匹配的拦截器不会出现在路由的拦截器链中；只有基于请求路径的规则（比如：/api/*）需要在请求时判断。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class RouteInterceptor
+{
+	static final RouteInterceptor[]	EMPTY	= new RouteInterceptor[0];
+
+	private final ActionInterceptor	interceptor;
+
+	// 请求路径需要匹配其中之一，null 表示无需判断
+	private final GlobMatcher[]		onlyPaths;
+
+	// 请求路径匹配其中之一时跳过，null 表示无需判断
+	private final GlobMatcher[]		unlessPaths;
+
+	// @Catch 拦截器能够处理的异常类型
+	private final Class<?>[]		exceptions;
+
+	RouteInterceptor(ActionInterceptor interceptor, GlobMatcher[] onlyPaths, GlobMatcher[] unlessPaths,
+			Class<?>[] exceptions) {
+		this.interceptor = interceptor;
+		this.onlyPaths = onlyPaths;
+		this.unlessPaths = unlessPaths;
+		this.exceptions = exceptions;
+	}
+
+	ActionInterceptor getInterceptor()
+	{
+		return this.interceptor;
+	}
+
+	/**
+	 * 是否需要根据请求路径判断
+	 */
+	boolean isPathDependent()
+	{
+		return this.onlyPaths != null || this.unlessPaths != null;
+	}
+
+	/**
+	 * 判断拦截器是否作用于当前请求路径
+	 */
+	boolean applies(String path)
+	{
+		if(this.onlyPaths != null && !matchesAny(this.onlyPaths, path))
+		{
+			return false;
+		}
+
+		if(this.unlessPaths != null && matchesAny(this.unlessPaths, path))
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * 判断 @Catch 拦截器是否能够处理该异常
+	 */
+	boolean catches(Throwable e)
+	{
+		for(Class<?> exception : this.exceptions)
+		{
+			if(exception.isInstance(e))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean matchesAny(GlobMatcher[] matchers, String path)
+	{
+		for(GlobMatcher matcher : matchers)
+		{
+			if(matcher.matches(path))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.interceptor.toString();
+	}
+}
@@ -0,0 +1,301 @@
+package com.sparkweb.web.router;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 基于路径分段(segment)的路由前缀树 <br>
+ * 在 {@link RouteHandler} normalize 时构建，每个 HTTP method 对应一棵树：
+ * <ul>
+ * <li>静态分段（/users）和命名参数分段（/:id）的路由存放在前缀树中，匹配开销只与请求路径的深度有关，与路由数量无关；</li>
+ * <li>其它需要正则才能表达的路由（/user/(\\d+)、/user/:id(\\d+)、/user/:id?、/files/* 等）仍然按照原有顺序进行正则匹配。</li>
+ * </ul>
+ * 匹配时在每一层都优先匹配静态分段，再匹配命名参数分段，从而保证静态路由优先于动态路由。
+ *
+ * @author yswang
+ * @version 1.0
+ */
+final class RouteTrie
+{
+	private final boolean		caseSensitive;
+	private final boolean		strict;
+
+	private final Node			root		= new Node();
+
+	// 无法使用前缀树表示的路由，按路由排序后的顺序依次进行正则匹配
+	private final List<Entry>	regexRoutes	= new ArrayList<Entry>();
+
+	// 前缀树的最大深度，用于分配匹配时的分段缓存
+	private int					maxDepth	= 0;
+
+	// 路由加入的顺序号（加入前路由已经按照静态路由在前、动态路由在后排好序）
+	private int					order		= 0;
+
+	RouteTrie(boolean caseSensitive, boolean strict) {
+		this.caseSensitive = caseSensitive;
+		this.strict = strict;
+	}
+
+	/**
+	 * 添加路由，路由必须按照匹配优先级的顺序加入
+	 */
+	void add(Route route)
+	{
+		String[] segments = PathParser.splitOmitEmptyString(route.getPath(), "/");
+		if(!isTrieable(segments))
+		{
+			regexRoutes.add(new Entry(route, order++, null));
+			return;
+		}
+
+		List<String> paramNames = new ArrayList<String>(4);
+		Node node = root;
+
+		for(String segment : segments)
+		{
+			if(segment.charAt(0) == ':')
+			{
+				paramNames.add(segment.substring(1));
+				if(node.param == null)
+				{
+					node.param = new Node();
+				}
+				node = node.param;
+			}
+			else
+			{
+				if(node.statics == null)
+				{
+					node.statics = new HashMap<String, Node>(8);
+				}
+
+				String key = segmentKey(segment);
+				Node child = node.statics.get(key);
+				if(child == null)
+				{
+					child = new Node();
+					node.statics.put(key, child);
+				}
+				node = child;
+			}
+		}
+
+		maxDepth = Math.max(maxDepth, segments.length);
+
+		Entry entry = new Entry(route, order++, paramNames.toArray(new String[paramNames.size()]));
+		boolean trailingSlash = route.getPath().charAt(route.getPath().length() - 1) == '/';
+
+		// 严格模式下：/users != /users/；非严格模式下：/users == /users/
+		// 同一位置已经存在的路由优先级更高，不进行覆盖
+		if(strict)
+		{
+			if(trailingSlash)
+			{
+				if(node.slashTerminal == null) node.slashTerminal = entry;
+			}
+			else
+			{
+				if(node.terminal == null) node.terminal = entry;
+			}
+		}
+		else
+		{
+			if(node.terminal == null) node.terminal = entry;
+			if(node.slashTerminal == null) node.slashTerminal = entry;
+		}
+	}
+
+	/**
+	 * 对请求路径进行路由匹配
+	 *
+	 * @param path 请求路径
+	 * @return 匹配的路由，不存在则返回 null
+	 */
+	MatchedRoute match(String path)
+	{
+		if(path == null)
+		{
+			return null;
+		}
+
+		// 切分请求路径，忽略空分段（等同于将 // 合并为 /）
+		String[] segments = new String[maxDepth + 1];
+		int count = 0;
+		boolean overflow = false;
+
+		for(int i = 0, len = path.length(), start = -1; i <= len; i++)
+		{
+			if(i == len || path.charAt(i) == '/')
+			{
+				if(start != -1)
+				{
+					if(count == segments.length)
+					{
+						overflow = true;
+						break;
+					}
+					segments[count++] = path.substring(start, i);
+					start = -1;
+				}
+			}
+			else if(start == -1)
+			{
+				start = i;
+			}
+		}
+
+		boolean trailingSlash = path.length() > 0 && path.charAt(path.length() - 1) == '/';
+
+		Entry found = null;
+		String[] captured = null;
+
+		// 请求路径比前缀树中最深的路由还要深，前缀树中不可能存在匹配的路由
+		if(!overflow)
+		{
+			captured = new String[count];
+			found = find(root, segments, 0, count, trailingSlash, captured, 0);
+		}
+
+		// 静态路由总是优先
+		if(found != null && found.route.getFlag() == 0)
+		{
+			return found.toMatchedRoute(captured);
+		}
+
+		// 只有排在已命中路由之前的正则路由才有机会优先匹配
+		for(int i = 0, size = regexRoutes.size(); i < size; i++)
+		{
+			Entry entry = regexRoutes.get(i);
+			if(found != null && entry.order > found.order)
+			{
+				break;
+			}
+
+			MatchedRoute mRoute = entry.route.match(path);
+			if(mRoute != null)
+			{
+				return mRoute;
+			}
+		}
+
+		return found != null ? found.toMatchedRoute(captured) : null;
+	}
+
+	/**
+	 * 深度优先查找，每一层优先匹配静态分段，再匹配命名参数分段
+	 */
+	private Entry find(Node node, String[] segments, int index, int count, boolean trailingSlash,
+			String[] captured, int paramIndex)
+	{
+		if(index == count)
+		{
+			return trailingSlash ? node.slashTerminal : node.terminal;
+		}
+
+		String segment = segments[index];
+
+		if(node.statics != null)
+		{
+			Node child = node.statics.get(segmentKey(segment));
+			if(child != null)
+			{
+				Entry entry = find(child, segments, index + 1, count, trailingSlash, captured, paramIndex);
+				if(entry != null)
+				{
+					return entry;
+				}
+			}
+		}
+
+		if(node.param != null)
+		{
+			captured[paramIndex] = segment;
+			return find(node.param, segments, index + 1, count, trailingSlash, captured, paramIndex + 1);
+		}
+
+		return null;
+	}
+
+	private String segmentKey(String segment)
+	{
+		return caseSensitive ? segment : segment.toLowerCase(Locale.US);
+	}
+
+	/**
+	 * 判断路由是否只包含静态分段和简单的命名参数分段(:name)，
+	 * 只有这样的路由才能放入前缀树中。
+	 */
+	private static boolean isTrieable(String[] segments)
+	{
+		for(String segment : segments)
+		{
+			if(segment.charAt(0) == ':')
+			{
+				if(segment.length() == 1)
+				{
+					return false;
+				}
+
+				for(int i = 1, len = segment.length(); i < len; i++)
+				{
+					char c = segment.charAt(i);
+					// 与 PathParser 中命名参数的定义 :(\\w+) 保持一致
+					if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'))
+					{
+						return false;
+					}
+				}
+			}
+			else
+			{
+				for(int i = 0, len = segment.length(); i < len; i++)
+				{
+					// 含有正则元字符的分段只能使用正则匹配
+					if(PathParser.REGEXP_META_CHARS.indexOf(segment.charAt(i)) != -1)
+					{
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static final class Node
+	{
+		Map<String, Node>	statics;
+		Node				param;
+		// 请求路径不以 / 结尾时命中的路由
+		Entry				terminal;
+		// 请求路径以 / 结尾时命中的路由
+		Entry				slashTerminal;
+	}
+
+	private static final class Entry
+	{
+		final Route		route;
+		final int		order;
+		final String[]	paramNames;
+
+		Entry(Route route, int order, String[] paramNames) {
+			this.route = route;
+			this.order = order;
+			this.paramNames = paramNames;
+		}
+
+		MatchedRoute toMatchedRoute(String[] captured)
+		{
+			MatchedRoute mRoute = new MatchedRoute(route);
+			for(int i = 0; i < paramNames.length; i++)
+			{
+				mRoute.addNamedParam(paramNames[i], captured[i]);
+			}
+
+			return mRoute;
+		}
+	}
+}